@@ -5,6 +5,8 @@ import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
+import net.sf.ecl1.utilities.hisinone.WebappsUtil;
+
 /**
  * Activator
  *
@@ -39,6 +41,7 @@ public class Activator extends AbstractUIPlugin {
      */
     @Override
     public void stop(BundleContext bundleContext) throws Exception {
+        WebappsUtil.dispose();
         Activator.context = null;
         plugin = null;
     }
@@ -2,7 +2,9 @@ package net.sf.ecl1.utilities.general;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.core.resources.IProject;
@@ -16,6 +18,7 @@ import org.eclipse.jgit.transport.sshd.JGitKeyCache;
 import org.eclipse.jgit.transport.sshd.SshdSessionFactory;
 import org.eclipse.jgit.transport.sshd.SshdSessionFactoryBuilder;
 import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.FS.ExecutionResult;
 
 import net.sf.ecl1.utilities.Activator;
 import net.sf.ecl1.utilities.hisinone.WebappsUtil;
@@ -151,4 +154,36 @@ public class GitUtil {
 				.setSshDirectory(sshDir).build(new JGitKeyCache());
 		SshSessionFactory.setInstance(sshdSessionFactory);
     }
+
+    /**
+     * Returns the git directory that holds the objects of a repository.
+     * Worktrees share the objects of their main repository, which is referenced by their "commondir" file.
+     *
+     * @param gitDir git directory of a repository or worktree
+     */
+    public static File getCommonDirectory(File gitDir) throws IOException {
+        File commonDir = new File(gitDir, "commondir");
+        if (commonDir.isFile()) {
+            return gitDir.toPath().resolve(Files.readString(commonDir.toPath()).trim()).normalize().toFile();
+        }
+        return gitDir;
+    }
+
+    /**
+     * Runs the git command line client, e.g. for partial clones, whose missing objects JGit cannot load on demand.
+     * The client never prompts for credentials, it fails instead.
+     *
+     * @param directory working directory of the command
+     * @param args arguments of the git command, e.g. "fetch", "origin"
+     * @return exit code and output of the command
+     */
+    public static ExecutionResult runNativeGit(File directory, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(Arrays.asList(args));
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.directory(directory);
+        processBuilder.environment().put("GIT_TERMINAL_PROMPT", "0");
+        return FS.DETECTED.execute(processBuilder, null);
+    }
 }
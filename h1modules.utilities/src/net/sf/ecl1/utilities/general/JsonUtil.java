@@ -1,9 +1,18 @@
 package net.sf.ecl1.utilities.general;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 
 public class JsonUtil {
 
@@ -14,4 +23,40 @@ public class JsonUtil {
         return t;
     }
 
+    /**
+     * Reads an object from a json file.
+     *
+     * @return the object, null if the file does not exist or is not valid json
+     * @throws IOException if the file cannot be read
+     */
+    public static <T> T fromJson(Class<T> clazz, Path source) throws IOException {
+        if (!Files.isRegularFile(source)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            return new Gson().fromJson(reader, clazz);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes an object to a json file. The file is replaced atomically, so that readers never see a partly written file.
+     * Missing parent directories are created.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public static void toJson(Object object, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                new GsonBuilder().setPrettyPrinting().create().toJson(object, writer);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
 }
@@ -0,0 +1,167 @@
+package net.sf.ecl1.utilities.general;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.FS.ExecutionResult;
+
+/**
+ * Helpers for the objects of git LFS, which are stored outside of the git object database in "lfs/objects".
+ * The git objects only contain small pointer files with the SHA-256 id (oid) of the LFS object.
+ */
+public class LfsUtil {
+
+    /** Pointer files are never larger, see the git LFS specification */
+    private static final int MAX_POINTER_SIZE = 1024;
+
+    private static final String POINTER_VERSION = "version https://git-lfs.github.com/spec/v1";
+
+    private static final Pattern POINTER_OID = Pattern.compile("^oid sha256:([0-9a-f]{64})$", Pattern.MULTILINE);
+
+    /** Number of parallel downloads of a prefetch */
+    private static final int CONCURRENT_TRANSFERS = 8;
+
+    /** Whether the git LFS client is installed, detected on first use */
+    private static volatile Boolean clientAvailable;
+
+    private LfsUtil() {
+        // static helper
+    }
+
+    /**
+     * @return the LFS store of a repository, shared by all its worktrees. It may not exist.
+     */
+    public static File getObjectsDirectory(Repository repository) throws IOException {
+        return getObjectsDirectory(GitUtil.getCommonDirectory(repository.getDirectory()));
+    }
+
+    /**
+     * @param commonDirectory git directory of a repository that holds the objects, shared by its worktrees
+     * @return the LFS store of the repository. It may not exist.
+     */
+    public static File getObjectsDirectory(File commonDirectory) {
+        return new File(commonDirectory, "lfs/objects");
+    }
+
+    /**
+     * @return the file of an LFS object in the store, which exists if the object was downloaded
+     */
+    public static File getObjectFile(File objectsDirectory, String oid) {
+        return new File(objectsDirectory, oid.substring(0, 2) + File.separator + oid.substring(2, 4) + File.separator + oid);
+    }
+
+    /**
+     * Reads the oid of a blob that is an LFS pointer.
+     *
+     * @return the oid, null if the blob is no LFS pointer
+     */
+    public static String readPointer(ObjectReader reader, ObjectId blobId) throws IOException {
+        if (reader.getObjectSize(blobId, Constants.OBJ_BLOB) > MAX_POINTER_SIZE) {
+            return null;
+        }
+        String content = new String(reader.open(blobId, Constants.OBJ_BLOB).getBytes(), StandardCharsets.UTF_8);
+        if (!content.startsWith(POINTER_VERSION)) {
+            return null;
+        }
+        Matcher oid = POINTER_OID.matcher(content);
+        return oid.find() ? oid.group(1) : null;
+    }
+
+    /**
+     * Returns the LFS objects that a checkout of a commit needs but that are not in the LFS store yet.
+     *
+     * @param oldCommit the checked out commit, only files that differ from it are considered. Null to consider all files.
+     * @param newCommit the commit to check out
+     * @return the oids of the missing objects
+     */
+    public static Set<String> findMissingObjects(Repository repository, ObjectId oldCommit, ObjectId newCommit) throws IOException {
+        File objectsDirectory = getObjectsDirectory(repository);
+        Set<String> missing = new LinkedHashSet<>();
+        try (RevWalk walk = new RevWalk(repository);
+                TreeWalk treeWalk = new TreeWalk(repository)) {
+            treeWalk.setRecursive(true);
+            if (oldCommit != null) {
+                treeWalk.addTree(walk.parseCommit(oldCommit).getTree());
+                treeWalk.addTree(walk.parseCommit(newCommit).getTree());
+                treeWalk.setFilter(TreeFilter.ANY_DIFF);
+                for (DiffEntry change : DiffEntry.scan(treeWalk)) {
+                    if (change.getChangeType() != ChangeType.DELETE && isFile(change.getNewMode())) {
+                        addIfMissing(missing, objectsDirectory, treeWalk.getObjectReader(), change.getNewId().toObjectId());
+                    }
+                }
+            } else {
+                treeWalk.addTree(walk.parseCommit(newCommit).getTree());
+                while (treeWalk.next()) {
+                    if (isFile(treeWalk.getFileMode(0))) {
+                        addIfMissing(missing, objectsDirectory, treeWalk.getObjectReader(), treeWalk.getObjectId(0));
+                    }
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * @return true if the mode is a file, with or without the executable bit
+     */
+    private static boolean isFile(FileMode mode) {
+        return (mode.getBits() & FileMode.TYPE_MASK) == FileMode.TYPE_FILE;
+    }
+
+    private static void addIfMissing(Set<String> missing, File objectsDirectory, ObjectReader reader, ObjectId blobId) throws IOException {
+        String oid = readPointer(reader, blobId);
+        if (oid != null && !getObjectFile(objectsDirectory, oid).isFile()) {
+            missing.add(oid);
+        }
+    }
+
+    /**
+     * Detects once whether the git LFS client is installed. Without it, {@link #fetchObjects(File, String, String)} cannot work.
+     *
+     * @return true if "git lfs" can be run
+     */
+    public static boolean isClientAvailable() {
+        Boolean available = clientAvailable;
+        if (available == null) {
+            try {
+                available = GitUtil.runNativeGit(null, "lfs", "version").getRc() == 0;
+            } catch (IOException e) {
+                available = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // Detect again next time
+                return false;
+            }
+            clientAvailable = available;
+        }
+        return available;
+    }
+
+    /**
+     * Downloads the LFS objects of a ref that are not in the LFS store yet, so that a later checkout only copies local files.
+     * The git LFS client requests the objects in batches and downloads them in parallel, see {@link #isClientAvailable()}.
+     *
+     * @param workTree working tree of the repository
+     * @param remote remote to download from
+     * @param ref the ref whose objects are needed, e.g. a remote tracking branch
+     * @return exit code and output of the git LFS client
+     */
+    public static ExecutionResult fetchObjects(File workTree, String remote, String ref) throws IOException, InterruptedException {
+        return GitUtil.runNativeGit(workTree, "-c", "lfs.concurrenttransfers=" + CONCURRENT_TRANSFERS, "lfs", "fetch", remote, ref);
+    }
+}
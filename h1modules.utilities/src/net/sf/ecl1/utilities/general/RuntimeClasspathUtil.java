@@ -43,7 +43,7 @@ public class RuntimeClasspathUtil {
      */
 	public static void addAllExtensionsToRuntimeClasspath(IJavaProject javaProject, LinkedHashSet<IRuntimeClasspathEntry> runtimeClasspath) {
         IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
-		Map<String, String> extensions = ExtensionUtil.getInstance().findAllExtensions();
+		Map<String, String> extensions = ExtensionUtil.getInstance().getExtensions();
 		if (extensions!=null && extensions.size()>0) {
 			for (Map.Entry<String, String> extensionEntry : extensions.entrySet()) {
 				String simpleExtensionPath = extensionEntry.getValue();
@@ -0,0 +1,256 @@
+package net.sf.ecl1.utilities.general;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import net.sf.ecl1.utilities.Activator;
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
+import net.sf.ecl1.utilities.preferences.PreferenceWrapper;
+
+/**
+ * Content addressed store of LFS objects shared by all repositories of the workspace.
+ * <p>
+ * An object is only added to the store and linked from it if its content matches its oid, so that a damaged copy
+ * never spreads to other repositories.
+ * <p>
+ * The LFS stores of the repositories hold hard links to the shared copies, so that an object that is used by several
+ * repositories takes disk space only once. A repository keeps its objects if the shared store is deleted, and deleting
+ * the object of a repository never affects other repositories. Hard links only work within one file system,
+ * so repositories on another file system than the workspace keep their own copies.
+ */
+public class SharedLfsStore {
+
+    private static final ICommonLogger logger = LoggerFactory.getLogger(SharedLfsStore.class.getSimpleName(), Activator.PLUGIN_ID, Activator.getDefault());
+
+    private static final String DIRECTORY_NAME = "lfs-objects";
+
+    private static final Pattern OID = Pattern.compile("[0-9a-f]{64}");
+
+    private SharedLfsStore() {
+        // static helper
+    }
+
+    /**
+     * @return true if the repositories should share their LFS objects
+     */
+    public static boolean isEnabled() {
+        return PreferenceWrapper.isGitLfsSharedStore();
+    }
+
+    /**
+     * @return the shared store in the workspace metadata. It may not exist.
+     */
+    public static File getDirectory() {
+        return WorkspaceSupport.getPluginStateLocation(Activator.PLUGIN_ID).resolve(DIRECTORY_NAME).toFile();
+    }
+
+    /**
+     * Returns the LFS objects in a store.
+     *
+     * @param objectsDirectory the LFS store of a repository or the shared store
+     * @return the object files by their oid, empty if the store does not exist
+     */
+    public static Map<String, Path> listObjects(File objectsDirectory) throws IOException {
+        if (!objectsDirectory.isDirectory()) {
+            return Map.of();
+        }
+        try (Stream<Path> files = Files.walk(objectsDirectory.toPath())) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> OID.matcher(file.getFileName().toString()).matches())
+                    .collect(Collectors.toMap(file -> file.getFileName().toString(), file -> file, (a, b) -> a));
+        }
+    }
+
+    /**
+     * Replaces the objects of a repository with hard links to the shared copies.
+     * Objects that are not shared yet are added to the shared store.
+     *
+     * @param objectsDirectory the LFS store of a repository
+     * @return the bytes freed by this call
+     * @throws IOException if the shared store cannot be written, e.g. because it is on another file system
+     */
+    public static long deduplicate(File objectsDirectory) throws IOException {
+        File sharedDirectory = getDirectory();
+        long freedBytes = 0;
+        for (Map.Entry<String, Path> object : listObjects(objectsDirectory).entrySet()) {
+            Path file = object.getValue();
+            Path shared = LfsUtil.getObjectFile(sharedDirectory, object.getKey()).toPath();
+            if (!Files.exists(shared)) {
+                if (!hasContent(file, object.getKey())) {
+                    // An incomplete or damaged download, git lfs will repair it
+                    logger.debug("Content of LFS object " + file + " does not match its oid, it is not shared");
+                    continue;
+                }
+                Files.createDirectories(shared.getParent());
+                try {
+                    Files.createLink(shared, file);
+                    continue;
+                } catch (FileAlreadyExistsException e) {
+                    // Shared by another repository that is deduplicated in parallel, link to its copy
+                }
+            }
+            if (!Files.isSameFile(shared, file)) {
+                long size = Files.size(file);
+                if (Files.size(shared) != size) {
+                    // An incomplete download, git lfs will repair it
+                    logger.debug("Size of LFS object " + file + " differs from its shared copy, it is not linked");
+                    continue;
+                }
+                if (replaceWithLink(file, shared)) {
+                    freedBytes += size;
+                }
+            }
+        }
+        return freedBytes;
+    }
+
+    /**
+     * Links objects of the shared store into the store of a repository, so that they need not be downloaded.
+     *
+     * @param objectsDirectory the LFS store of a repository
+     * @param oids the objects the repository needs
+     * @return the objects that are not in the shared store, in the order of the given oids
+     */
+    public static Set<String> linkObjects(File objectsDirectory, Collection<String> oids) {
+        File sharedDirectory = getDirectory();
+        Set<String> notShared = new LinkedHashSet<>();
+        for (String oid : oids) {
+            Path shared = LfsUtil.getObjectFile(sharedDirectory, oid).toPath();
+            Path file = LfsUtil.getObjectFile(objectsDirectory, oid).toPath();
+            try {
+                if (!Files.exists(file)) {
+                    if (!Files.isRegularFile(shared)) {
+                        notShared.add(oid);
+                        continue;
+                    }
+                    if (!hasContent(shared, oid)) {
+                        // The repositories that link it keep their copy
+                        logger.warn("Content of shared LFS object " + oid + " does not match its oid, it is deleted");
+                        Files.delete(shared);
+                        notShared.add(oid);
+                        continue;
+                    }
+                    Files.createDirectories(file.getParent());
+                    Files.createLink(file, shared);
+                }
+            } catch (IOException e) {
+                logger.debug("Could not link shared LFS object " + oid + ": " + e.getMessage());
+                notShared.add(oid);
+            }
+        }
+        return notShared;
+    }
+
+    /**
+     * Counts the repositories that link each shared object.
+     *
+     * @param objectsDirectories the LFS stores of the repositories
+     * @return the number of links by oid. Shared objects that are linked by no repository are missing.
+     */
+    public static Map<String, Integer> countReferences(Collection<File> objectsDirectories) throws IOException {
+        File sharedDirectory = getDirectory();
+        Map<String, Integer> references = new HashMap<>();
+        for (File objectsDirectory : objectsDirectories) {
+            for (Map.Entry<String, Path> object : listObjects(objectsDirectory).entrySet()) {
+                Path shared = LfsUtil.getObjectFile(sharedDirectory, object.getKey()).toPath();
+                if (Files.exists(shared) && Files.isSameFile(shared, object.getValue())) {
+                    references.merge(object.getKey(), 1, Integer::sum);
+                }
+            }
+        }
+        return references;
+    }
+
+    /**
+     * @param references number of links by oid, see {@link #countReferences(Collection)}
+     * @return the bytes that the repositories would take without the shared store
+     */
+    public static long getSavedBytes(Map<String, Integer> references) throws IOException {
+        File sharedDirectory = getDirectory();
+        long savedBytes = 0;
+        for (Map.Entry<String, Integer> reference : references.entrySet()) {
+            savedBytes += (reference.getValue() - 1) * Files.size(LfsUtil.getObjectFile(sharedDirectory, reference.getKey()).toPath());
+        }
+        return savedBytes;
+    }
+
+    /**
+     * Deletes the shared objects that no repository links anymore.
+     *
+     * @param references number of links by oid, see {@link #countReferences(Collection)}
+     * @param dryRun true to only compute what would be deleted
+     * @return the bytes freed, or reclaimable in a dry run
+     */
+    public static long prune(Map<String, Integer> references, boolean dryRun) throws IOException {
+        long prunedBytes = 0;
+        List<Path> unreferenced = listObjects(getDirectory()).entrySet().stream()
+                .filter(object -> !references.containsKey(object.getKey()))
+                .map(Map.Entry::getValue)
+                .toList();
+        for (Path file : unreferenced) {
+            prunedBytes += Files.size(file);
+            if (!dryRun) {
+                Files.delete(file);
+            }
+        }
+        return prunedBytes;
+    }
+
+    /**
+     * @return true if the SHA-256 hash of the file is the oid
+     */
+    private static boolean hasContent(Path file, String oid) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest()).equals(oid);
+    }
+
+    /**
+     * Atomically replaces a file with a hard link, so that git lfs never sees a missing object.
+     *
+     * @return false if the file is in use and cannot be replaced
+     */
+    private static boolean replaceWithLink(Path file, Path shared) throws IOException {
+        Path link = file.resolveSibling(file.getFileName() + ".link");
+        Files.deleteIfExists(link);
+        Files.createLink(link, shared);
+        try {
+            Files.move(link, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            // On Windows, open files cannot be replaced
+            logger.debug("Could not replace LFS object " + file + " with a link: " + e.getMessage());
+            Files.deleteIfExists(link);
+            return false;
+        }
+    }
+}
@@ -27,6 +27,21 @@ import net.sf.ecl1.utilities.standalone.workspace.WorkspaceFactory;
  */
 public class WorkspaceSupport {
 
+    /** Directory of the workspace metadata of plugins, relative to the workspace root */
+    private static final String PLUGIN_STATE_PATH = ".metadata/.plugins";
+
+    /**
+     * Returns the directory in which a plugin can store its state for the current workspace.
+     * Works in Eclipse and standalone, the directory is the same as Plugin.getStateLocation() in Eclipse.
+     * The directory may not exist yet.
+     *
+     * @param pluginId id of the plugin
+     * @return the state directory of the plugin
+     */
+    public static java.nio.file.Path getPluginStateLocation(String pluginId) {
+        return WorkspaceFactory.getWorkspace().getRoot().getLocation().toPath().resolve(PLUGIN_STATE_PATH).resolve(pluginId);
+    }
+
     /**
      * Determine all projects that could be referenced by a new project
      *
@@ -0,0 +1,220 @@
+package net.sf.ecl1.utilities.hisinone;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+import net.sf.ecl1.utilities.Activator;
+import net.sf.ecl1.utilities.standalone.workspace.WorkspaceFactory;
+
+/**
+ * Index of all extensions of the workspace, see {@link ExtensionUtil#getExtensions()}.
+ * <p>
+ * The index is built on first use. In Eclipse, it is then updated from the resource deltas of the workspace:
+ * jars added to or removed from the extensions folder of webapps, and projects that are added, removed, opened
+ * or closed or whose extension.ant.properties is added or removed. It is rebuilt if another project becomes webapps.
+ * The jars are read again if the modification time of the extensions folder changed, because jars written outside
+ * of Eclipse (e.g. by an ant build on the command line) have no resource delta until the folder is refreshed.
+ * Standalone, it is rebuilt if a project directory was added or removed.
+ * Readers get an immutable snapshot, which is replaced by every update.
+ */
+class ExtensionIndex {
+
+    /**
+     * Immutable state of the index.
+     *
+     * @param webapps the webapps project the jars were read from, may be null
+     * @param extensionsMillis modification time of the extensions folder when the jars were read
+     * @param jars extension names to jar names
+     * @param projects names of the extension projects
+     * @param extensions extension names to project or jar names, projects override jars
+     */
+    private record Snapshot(IProject webapps, long extensionsMillis, SortedMap<String, String> jars,
+            SortedSet<String> projects, SortedMap<String, String> extensions) {
+
+        Snapshot(IProject webapps, long extensionsMillis, SortedMap<String, String> jars, SortedSet<String> projects) {
+            this(webapps, extensionsMillis, Collections.unmodifiableSortedMap(new TreeMap<>(jars)),
+                    Collections.unmodifiableSortedSet(new TreeSet<>(projects)), merge(jars, projects));
+        }
+
+        private static SortedMap<String, String> merge(SortedMap<String, String> jars, SortedSet<String> projects) {
+            TreeMap<String, String> extensions = new TreeMap<>(jars);
+            for (String project : projects) {
+                extensions.put(project, project);
+            }
+            return Collections.unmodifiableSortedMap(extensions);
+        }
+    }
+
+    private static final String EXTENSION_PROPERTIES = "extension.ant.properties";
+
+    private static volatile Snapshot snapshot;
+
+    /** Modification times of the standalone project directories and extensions folder when the index was built */
+    private static volatile String standaloneStamp;
+
+    private static final Object lock = new Object();
+
+    private ExtensionIndex() {
+        // static helper
+    }
+
+    /**
+     * @return extension names to extension project/jar names, immutable
+     */
+    static SortedMap<String, String> get() {
+        IProject webapps = WebappsUtil.findWebappsProject();
+        if (!Activator.isRunningInEclipse()) {
+            checkStandaloneDirectories(webapps);
+        }
+        long extensionsMillis = getExtensionsMillis(webapps);
+        Snapshot current = snapshot;
+        if (current != null && Objects.equals(current.webapps(), webapps) && current.extensionsMillis() == extensionsMillis) {
+            return current.extensions();
+        }
+        synchronized (lock) {
+            current = snapshot;
+            if (current == null || !Objects.equals(current.webapps(), webapps)) {
+                current = build(webapps, extensionsMillis);
+                snapshot = current;
+            } else if (current.extensionsMillis() != extensionsMillis) {
+                current = new Snapshot(webapps, extensionsMillis, scanJars(), current.projects());
+                snapshot = current;
+            }
+            return current.extensions();
+        }
+    }
+
+    private static Snapshot build(IProject webapps, long extensionsMillis) {
+        TreeMap<String, String> projects = new TreeMap<>();
+        ExtensionUtil.getInstance().scanForExtensionProjects(projects);
+        return new Snapshot(webapps, extensionsMillis, scanJars(), new TreeSet<>(projects.keySet()));
+    }
+
+    private static TreeMap<String, String> scanJars() {
+        TreeMap<String, String> jars = new TreeMap<>();
+        ExtensionUtil.getInstance().scanForExtensionJars(jars);
+        return jars;
+    }
+
+    /**
+     * @return modification time of the extensions folder of webapps, 0 if there is none
+     */
+    private static long getExtensionsMillis(IProject webapps) {
+        if (webapps == null) {
+            return 0;
+        }
+        IPath location = webapps.getFolder(HisConstants.EXTENSIONS_FOLDER).getLocation();
+        return location == null ? 0 : location.toFile().lastModified();
+    }
+
+    /**
+     * Applies the changes of a resource delta to the index.
+     *
+     * @param delta delta of the workspace root, whose children are the projects
+     */
+    static void update(IResourceDelta delta) {
+        if (delta == null) {
+            return;
+        }
+        synchronized (lock) {
+            Snapshot current = snapshot;
+            if (current == null) {
+                // Built on first use
+                return;
+            }
+            IProject webapps = WebappsUtil.findWebappsProject();
+            if (!Objects.equals(current.webapps(), webapps)) {
+                snapshot = null;
+                return;
+            }
+
+            TreeMap<String, String> jars = new TreeMap<>(current.jars());
+            TreeSet<String> projects = new TreeSet<>(current.projects());
+            boolean changed = false;
+            for (IResourceDelta projectDelta : delta.getAffectedChildren()) {
+                if (!(projectDelta.getResource() instanceof IProject project)) {
+                    continue;
+                }
+                if (isMembershipChange(projectDelta) || isAddedOrRemoved(projectDelta.findMember(new Path(EXTENSION_PROPERTIES)))) {
+                    boolean isExtensionProject = project.isOpen() && ExtensionUtil.getInstance().isExtensionProject(project);
+                    changed |= isExtensionProject ? projects.add(project.getName()) : projects.remove(project.getName());
+                }
+                if (project.equals(webapps)) {
+                    IResourceDelta extensionsDelta = projectDelta.findMember(new Path(HisConstants.EXTENSIONS_FOLDER));
+                    if (extensionsDelta != null) {
+                        changed |= updateJars(extensionsDelta, jars);
+                    }
+                }
+            }
+            if (changed) {
+                snapshot = new Snapshot(webapps, current.extensionsMillis(), jars, projects);
+            }
+        }
+    }
+
+    private static boolean isMembershipChange(IResourceDelta projectDelta) {
+        return projectDelta.getKind() != IResourceDelta.CHANGED || (projectDelta.getFlags() & IResourceDelta.OPEN) != 0;
+    }
+
+    private static boolean isAddedOrRemoved(IResourceDelta delta) {
+        return delta != null && delta.getKind() != IResourceDelta.CHANGED;
+    }
+
+    /**
+     * Applies the jars added to or removed from the extensions folder.
+     *
+     * @return true if the jars changed
+     */
+    private static boolean updateJars(IResourceDelta extensionsDelta, TreeMap<String, String> jars) {
+        if (isAddedOrRemoved(extensionsDelta)) {
+            TreeMap<String, String> scanned = scanJars();
+            boolean changed = !scanned.equals(jars);
+            jars.clear();
+            jars.putAll(scanned);
+            return changed;
+        }
+        boolean changed = false;
+        for (IResourceDelta jarDelta : extensionsDelta.getAffectedChildren(IResourceDelta.ADDED | IResourceDelta.REMOVED)) {
+            IResource jar = jarDelta.getResource();
+            if (jar.getType() != IResource.FILE || !ExtensionUtil.isExtensionJar(jar.getName())) {
+                continue;
+            }
+            if (jarDelta.getKind() == IResourceDelta.ADDED) {
+                changed |= !jar.getName().equals(jars.put(ExtensionUtil.getExtensionName(jar.getName()), jar.getName()));
+            } else {
+                changed |= jars.remove(ExtensionUtil.getExtensionName(jar.getName())) != null;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Discards the index if a project directory of the standalone workspace was added or removed.
+     */
+    private static void checkStandaloneDirectories(IProject webapps) {
+        File workspace = WorkspaceFactory.getWorkspace().getRoot().getLocation().toFile();
+        File parent = workspace.getAbsoluteFile().getParentFile();
+        StringBuilder stamp = new StringBuilder(workspace.getAbsolutePath()).append(':').append(workspace.lastModified());
+        if (parent != null) {
+            stamp.append(':').append(parent.lastModified());
+        }
+        String newStamp = stamp.toString();
+        if (!newStamp.equals(standaloneStamp)) {
+            synchronized (lock) {
+                standaloneStamp = newStamp;
+                snapshot = null;
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.util.Arrays;
 import java.util.List;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.eclipse.core.resources.IFile;
@@ -51,9 +52,7 @@ public class ExtensionUtil {
      * @return
      */
     public boolean doesExtensionJarExist(String extension) {
-        if (webappsProject == null) {
-            updateWebappsProjectReference();
-        }
+        updateWebappsProjectReference();
         if (webappsProject != null) {
             IPath extensionJarPath = new Path(HisConstants.EXTENSIONS_FOLDER).append(extension).addFileExtension("jar");
             return webappsProject.exists(extensionJarPath);
@@ -86,15 +85,32 @@ public class ExtensionUtil {
     /**
      * Find all extensions lying as jars in the extension folder of the webapps project or as own projects in the workspace.
      * Extension projects override extension jars.
-     * @param javaProject
-     * @return map from extension names to extension project/jar names
+     * The extensions are read from an index of the workspace, so this is cheap.
+     * @return immutable map from extension names to extension project/jar names, sorted by name
      */
-    public TreeMap<String, String> findAllExtensions() {
-    	TreeMap<String, String> extensions = new TreeMap<String, String>(); // TreeMap required to sort extensions by name
-        scanForExtensionJars(extensions);
-        scanForExtensionProjects(extensions);
+    public SortedMap<String, String> getExtensions() {
         // TODO evaluate deactivated-extensions.txt and override extension jars with extension projects only if the project is not deactivated
-        return extensions;
+        return ExtensionIndex.get();
+    }
+
+    /**
+     * Find all extensions lying as jars in the extension folder of the webapps project or as own projects in the workspace.
+     * Extension projects override extension jars.
+     * @return a modifiable copy of {@link #getExtensions()}
+     */
+    public TreeMap<String, String> findAllExtensions() {
+        return new TreeMap<String, String>(getExtensions());
+    }
+
+    static boolean isExtensionJar(String fileName) {
+        return fileName.endsWith("jar");
+    }
+
+    /**
+     * @return the name of the extension of a jar in the extensions folder
+     */
+    static String getExtensionName(String jarName) {
+        return jarName.replace(".jar", "");
     }
 
 
@@ -105,9 +121,8 @@ public class ExtensionUtil {
      * @param extensions the map from extension names to extension project/jar names, will be updated by this method
      */
     public void scanForExtensionJars(TreeMap<String, String> extensions) {
-        if (webappsProject == null) {
-            updateWebappsProjectReference();
-        }
+        // The lookup is cached, so webapps is always up to date
+        updateWebappsProjectReference();
         // scan folder webapps/qisserver/WEB-INF/extensions/ for extension jars
         if (webappsProject != null) {
             IFolder extensionsFolder = webappsProject.getFolder(HisConstants.EXTENSIONS_FOLDER);
@@ -117,11 +132,11 @@ public class ExtensionUtil {
 	            List<File> extensionJars = Arrays.asList(rawLocation.toFile().listFiles(new FilenameFilter() {
 	                @Override
 	                public boolean accept(File dir, String name) {
-	                    return name != null && name.endsWith("jar");
+	                    return name != null && isExtensionJar(name);
 	                }
 	            }));
 	            for (File extensionJar : extensionJars) {
-	                extensions.put(extensionJar.getName().replace(".jar", ""), extensionJar.getName());
+	                extensions.put(getExtensionName(extensionJar.getName()), extensionJar.getName());
 	            }
 	        }
         }
@@ -0,0 +1,147 @@
+package net.sf.ecl1.utilities.hisinone;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.Path;
+
+import net.sf.ecl1.utilities.Activator;
+import net.sf.ecl1.utilities.standalone.workspace.WorkspaceFactory;
+
+/**
+ * Caches the webapps project, so that callers do not probe the extensions folder of every project of the workspace.
+ * <p>
+ * In Eclipse, the cache is invalidated by resource deltas that add, remove, open or close a project or that add or
+ * remove the extensions folder of a project. Standalone, it is invalidated if the directories that hold the projects
+ * were modified, i.e. a project directory was added or removed. The cache is thread safe. Concurrent lookups of an
+ * invalid cache scan the workspace once.
+ */
+class WebappsLocator {
+
+    /** Cached result of a workspace scan */
+    private record Entry(long generation, IProject webapps) {
+    }
+
+    /** Incremented by every invalidation */
+    private static final AtomicLong generation = new AtomicLong();
+
+    private static volatile Entry entry;
+
+    /** Modification times of the standalone project directories when the cache was filled */
+    private static volatile String standaloneStamp;
+
+    private static final Object lock = new Object();
+
+    private static IResourceChangeListener listener;
+
+    private WebappsLocator() {
+        // static helper
+    }
+
+    /**
+     * @return the webapps project, null if the workspace has none
+     */
+    static IProject get() {
+        if (Activator.isRunningInEclipse()) {
+            registerListener();
+        } else {
+            checkStandaloneDirectories();
+        }
+        Entry cached = entry;
+        if (isValid(cached)) {
+            return cached.webapps();
+        }
+        synchronized (lock) {
+            cached = entry;
+            if (isValid(cached)) {
+                return cached.webapps();
+            }
+            // A change during the scan invalidates the result right away, so that the next lookup scans again
+            long scanGeneration = generation.get();
+            IProject webapps = WebappsUtil.scanForWebappsProject();
+            entry = new Entry(scanGeneration, webapps);
+            return webapps;
+        }
+    }
+
+    private static boolean isValid(Entry cached) {
+        if (cached == null || cached.generation() != generation.get()) {
+            return false;
+        }
+        // Deltas may have been missed while the listener was not registered yet
+        return cached.webapps() == null || cached.webapps().exists();
+    }
+
+    /**
+     * Discards the cached webapps project.
+     */
+    static void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private static synchronized void registerListener() {
+        if (listener != null) {
+            return;
+        }
+        listener = event -> {
+            if (affectsWebapps(event.getDelta())) {
+                invalidate();
+            }
+            // The extension index depends on the webapps project, so it is updated after the invalidation
+            ExtensionIndex.update(event.getDelta());
+        };
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(listener, IResourceChangeEvent.POST_CHANGE);
+    }
+
+    /**
+     * Stops listening to resource changes.
+     */
+    static synchronized void unregisterListener() {
+        if (listener != null) {
+            ResourcesPlugin.getWorkspace().removeResourceChangeListener(listener);
+            listener = null;
+            invalidate();
+        }
+    }
+
+    /**
+     * @param delta delta of the workspace root, whose children are the projects
+     * @return true if a project was added, removed, opened or closed or its extensions folder was added or removed
+     */
+    private static boolean affectsWebapps(IResourceDelta delta) {
+        if (delta == null) {
+            return false;
+        }
+        for (IResourceDelta projectDelta : delta.getAffectedChildren()) {
+            if (projectDelta.getKind() != IResourceDelta.CHANGED
+                    || (projectDelta.getFlags() & IResourceDelta.OPEN) != 0) {
+                return true;
+            }
+            IResourceDelta extensionsDelta = projectDelta.findMember(new Path(HisConstants.EXTENSIONS_FOLDER));
+            if (extensionsDelta != null && extensionsDelta.getKind() != IResourceDelta.CHANGED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Invalidates the cache if a project directory was added to or removed from the standalone workspace.
+     */
+    private static void checkStandaloneDirectories() {
+        File workspace = WorkspaceFactory.getWorkspace().getRoot().getLocation().toFile();
+        // The standalone workspace also contains the projects next to the workspace directory
+        File parent = workspace.getAbsoluteFile().getParentFile();
+        String stamp = workspace.getAbsolutePath() + ":" + workspace.lastModified()
+                + (parent != null ? ":" + parent.lastModified() : "");
+        if (!stamp.equals(standaloneStamp)) {
+            standaloneStamp = stamp;
+            invalidate();
+        }
+    }
+}
@@ -22,10 +22,25 @@ public class WebappsUtil {
      * Find the webapps project in the workspace.
      * We consider only HisInOne projects, which (in contrast to QIS-projects have a qisserver/WEB-INF/extensions folder.
      * If several such projects exist, a project named webapps has priority; otherwise the first found project is returned.
+     * The result is cached until projects are added, removed, opened or closed.
      * 
      * @return the project serving as core webapps
      */
     public static IProject findWebappsProject() {
+        return WebappsLocator.get();
+    }
+
+    /**
+     * Stops the cache of {@link #findWebappsProject()} from listening to workspace changes.
+     */
+    public static void dispose() {
+        WebappsLocator.unregisterListener();
+    }
+
+    /**
+     * Scans all projects of the workspace for the webapps project, see {@link #findWebappsProject()}.
+     */
+    static IProject scanForWebappsProject() {
         List<IProject> projects;
         projects = Arrays.asList(WorkspaceFactory.getWorkspace().getRoot().getProjects(IWorkspaceRoot.INCLUDE_HIDDEN));
 
@@ -5,6 +5,7 @@ import java.util.Collection;
 import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.ComboFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.jface.preference.PreferenceStore;
 import org.eclipse.jface.preference.StringFieldEditor;
 import org.eclipse.jface.util.PropertyChangeEvent;
@@ -31,6 +32,18 @@ public class HISinOneExtensionsPreferencePage extends FieldEditorPreferencePage
     private StringFieldEditor templateRootUrls;
     private BooleanFieldEditor automaticBranchDetection;
     private BooleanFieldEditor displaySummaryOfGitPull;
+    private IntegerFieldEditor gitPullMinParallelism;
+    private IntegerFieldEditor gitPullMaxParallelism;
+    private BooleanFieldEditor gitPullPipelined;
+    private IntegerFieldEditor gitPullMaxParallelIntegrations;
+    private BooleanFieldEditor gitPullConflictPrecheck;
+    private StringFieldEditor gitPartialCloneProjects;
+    private StringFieldEditor gitPartialCloneFilter;
+    private BooleanFieldEditor gitPrefetchInBackground;
+    private IntegerFieldEditor gitPrefetchIntervalMinutes;
+    private IntegerFieldEditor gitLfsPruneMaxParallelism;
+    private BooleanFieldEditor gitLfsPruneDryRun;
+    private BooleanFieldEditor gitLfsSharedStore;
 
     public HISinOneExtensionsPreferencePage() {
         super(GRID);
@@ -81,7 +94,36 @@ public class HISinOneExtensionsPreferencePage extends FieldEditorPreferencePage
         addField(automaticBranchDetection);
         addField(buildServerView);
         addField(templateRootUrls);
+        gitPullMinParallelism = new IntegerFieldEditor(PreferenceWrapper.GIT_PULL_MIN_PARALLELISM, "Min. parallel pulls of git batch pull:", getFieldEditorParent());
+        gitPullMinParallelism.setValidRange(1, 100);
+        gitPullMaxParallelism = new IntegerFieldEditor(PreferenceWrapper.GIT_PULL_MAX_PARALLELISM, "Max. parallel pulls of git batch pull:", getFieldEditorParent());
+        gitPullMaxParallelism.setValidRange(1, 100);
+        gitPullPipelined = new BooleanFieldEditor(PreferenceWrapper.GIT_PULL_PIPELINED, "Fetch all projects first and merge each one as soon as it was fetched?", BooleanFieldEditor.SEPARATE_LABEL, getFieldEditorParent());
+        gitPullMaxParallelIntegrations = new IntegerFieldEditor(PreferenceWrapper.GIT_PULL_MAX_PARALLEL_INTEGRATIONS, "Max. parallel merges of git batch pull:", getFieldEditorParent());
+        gitPullMaxParallelIntegrations.setValidRange(1, 100);
+        gitPullConflictPrecheck = new BooleanFieldEditor(PreferenceWrapper.GIT_PULL_CONFLICT_PRECHECK, "Skip projects whose git pull would conflict, before touching their files?", BooleanFieldEditor.SEPARATE_LABEL, getFieldEditorParent());
+        gitPartialCloneProjects = new StringFieldEditor(PreferenceWrapper.GIT_PARTIAL_CLONE_PROJECTS, "Projects to import as partial clone (comma separated):", getFieldEditorParent());
+        gitPartialCloneFilter = new StringFieldEditor(PreferenceWrapper.GIT_PARTIAL_CLONE_FILTER, "Filter of partial clones:", getFieldEditorParent());
+        gitPrefetchInBackground = new BooleanFieldEditor(PreferenceWrapper.GIT_PREFETCH_IN_BACKGROUND, "Fetch git projects in the background while the IDE is idle?", BooleanFieldEditor.SEPARATE_LABEL, getFieldEditorParent());
+        gitPrefetchIntervalMinutes = new IntegerFieldEditor(PreferenceWrapper.GIT_PREFETCH_INTERVAL_MINUTES, "Minutes between background fetches:", getFieldEditorParent());
+        gitPrefetchIntervalMinutes.setValidRange(1, 1440);
+        gitLfsPruneMaxParallelism = new IntegerFieldEditor(PreferenceWrapper.GIT_LFS_PRUNE_MAX_PARALLELISM, "Max. parallel repositories of git lfs prune:", getFieldEditorParent());
+        gitLfsPruneMaxParallelism.setValidRange(1, 100);
+        gitLfsPruneDryRun = new BooleanFieldEditor(PreferenceWrapper.GIT_LFS_PRUNE_DRY_RUN, "Only report the LFS objects git lfs prune would delete?", BooleanFieldEditor.SEPARATE_LABEL, getFieldEditorParent());
+        gitLfsSharedStore = new BooleanFieldEditor(PreferenceWrapper.GIT_LFS_SHARED_STORE, "Share identical LFS objects of all repositories through hard links?", BooleanFieldEditor.SEPARATE_LABEL, getFieldEditorParent());
         addField(displaySummaryOfGitPull);
+        addField(gitPullMinParallelism);
+        addField(gitPullMaxParallelism);
+        addField(gitPullPipelined);
+        addField(gitPullMaxParallelIntegrations);
+        addField(gitPullConflictPrecheck);
+        addField(gitPartialCloneProjects);
+        addField(gitPartialCloneFilter);
+        addField(gitPrefetchInBackground);
+        addField(gitPrefetchIntervalMinutes);
+        addField(gitLfsPruneMaxParallelism);
+        addField(gitLfsPruneDryRun);
+        addField(gitLfsSharedStore);
         // Loglevel Combobox
         final String[][] logLevels = new String[4][2];
         logLevels[0][0] = logLevels[0][1] = "DEBUG";
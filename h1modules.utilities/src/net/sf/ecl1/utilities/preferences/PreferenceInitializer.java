@@ -36,5 +36,17 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
         store.setDefault(PreferenceWrapper.GIT_SERVER_PREFERENCE_KEY, GITLAB_BASE_REPOSITORY_PATH);
         store.setDefault(PreferenceWrapper.DETECT_BRANCH_AUTOMATICALLY, true);
         store.setDefault(PreferenceWrapper.DISPLAY_SUMMARY_OF_GIT_PULL, true);
+        store.setDefault(PreferenceWrapper.GIT_PULL_MIN_PARALLELISM, 2);
+        store.setDefault(PreferenceWrapper.GIT_PULL_MAX_PARALLELISM, 24);
+        store.setDefault(PreferenceWrapper.GIT_PULL_PIPELINED, false);
+        store.setDefault(PreferenceWrapper.GIT_PULL_MAX_PARALLEL_INTEGRATIONS, 2);
+        store.setDefault(PreferenceWrapper.GIT_PULL_CONFLICT_PRECHECK, false);
+        store.setDefault(PreferenceWrapper.GIT_PARTIAL_CLONE_PROJECTS, "");
+        store.setDefault(PreferenceWrapper.GIT_PARTIAL_CLONE_FILTER, "blob:none");
+        store.setDefault(PreferenceWrapper.GIT_PREFETCH_IN_BACKGROUND, false);
+        store.setDefault(PreferenceWrapper.GIT_PREFETCH_INTERVAL_MINUTES, 60);
+        store.setDefault(PreferenceWrapper.GIT_LFS_PRUNE_MAX_PARALLELISM, Runtime.getRuntime().availableProcessors());
+        store.setDefault(PreferenceWrapper.GIT_LFS_PRUNE_DRY_RUN, false);
+        store.setDefault(PreferenceWrapper.GIT_LFS_SHARED_STORE, false);
     }
 }
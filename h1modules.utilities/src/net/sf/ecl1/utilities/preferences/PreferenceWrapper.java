@@ -2,7 +2,9 @@ package net.sf.ecl1.utilities.preferences;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.preference.PreferenceStore;
@@ -44,6 +46,42 @@ public class PreferenceWrapper {
     /** Stores if the summary of the git batch pull should be displayed in a dialog to the user */
     public static final String DISPLAY_SUMMARY_OF_GIT_PULL = "displaySummaryOfGitPull";
 
+    /** Lowest number of parallel pulls the git batch pull adapts to */
+    public static final String GIT_PULL_MIN_PARALLELISM = "gitPullMinParallelism";
+
+    /** Highest number of parallel pulls the git batch pull adapts to */
+    public static final String GIT_PULL_MAX_PARALLELISM = "gitPullMaxParallelism";
+
+    /** Stores if the git batch pull fetches all projects first and integrates each one as soon as it was fetched */
+    public static final String GIT_PULL_PIPELINED = "gitPullPipelined";
+
+    /** Highest number of parallel merges and rebases of the pipelined git batch pull */
+    public static final String GIT_PULL_MAX_PARALLEL_INTEGRATIONS = "gitPullMaxParallelIntegrations";
+
+    /** Stores if the git batch pull checks in memory that a fetched upstream merges cleanly before touching the working tree */
+    public static final String GIT_PULL_CONFLICT_PRECHECK = "gitPullConflictPrecheck";
+
+    /** Comma separated names of the projects the import wizard clones as partial clone */
+    public static final String GIT_PARTIAL_CLONE_PROJECTS = "gitPartialCloneProjects";
+
+    /** Filter of partial clones, e.g. "blob:none" to load file contents only on checkout */
+    public static final String GIT_PARTIAL_CLONE_FILTER = "gitPartialCloneFilter";
+
+    /** Stores if git versioned projects should be fetched in the background while the IDE is idle */
+    public static final String GIT_PREFETCH_IN_BACKGROUND = "gitPrefetchInBackground";
+
+    /** Minutes between two background fetches */
+    public static final String GIT_PREFETCH_INTERVAL_MINUTES = "gitPrefetchIntervalMinutes";
+
+    /** Highest number of repositories the automatic git lfs prune prunes in parallel */
+    public static final String GIT_LFS_PRUNE_MAX_PARALLELISM = "gitLfsPruneMaxParallelism";
+
+    /** Stores if the automatic git lfs prune only reports what it would delete */
+    public static final String GIT_LFS_PRUNE_DRY_RUN = "gitLfsPruneDryRun";
+
+    /** Stores if the repositories of the workspace share identical LFS objects through hard links */
+    public static final String GIT_LFS_SHARED_STORE = "gitLfsSharedStore";
+
     /** Eclipse default path for preference store */
     private static final String ECLIPSE_STORE_PATH = ".metadata/.plugins/org.eclipse.core.runtime/.settings/net.sf.ecl1.utilities.prefs";
 
@@ -115,6 +153,78 @@ public class PreferenceWrapper {
         saveStore();
 	}
 
+	/**
+	 * @return the lowest number of parallel pulls of the git batch pull, at least 1
+	 */
+	public static int getGitPullMinParallelism() {
+		return Math.max(1, getStore().getInt(GIT_PULL_MIN_PARALLELISM));
+	}
+
+	/**
+	 * @return the highest number of parallel pulls of the git batch pull, never lower than {@link #getGitPullMinParallelism()}
+	 */
+	public static int getGitPullMaxParallelism() {
+		return Math.max(getGitPullMinParallelism(), getStore().getInt(GIT_PULL_MAX_PARALLELISM));
+	}
+
+	public static boolean isGitPullPipelined() {
+		return getStore().getBoolean(GIT_PULL_PIPELINED);
+	}
+
+	/**
+	 * @return the highest number of parallel merges and rebases of the pipelined git batch pull, at least 1
+	 */
+	public static int getGitPullMaxParallelIntegrations() {
+		return Math.max(1, getStore().getInt(GIT_PULL_MAX_PARALLEL_INTEGRATIONS));
+	}
+
+	public static boolean isGitPullConflictPrecheck() {
+		return getStore().getBoolean(GIT_PULL_CONFLICT_PRECHECK);
+	}
+
+	/**
+	 * @return the names of the projects to clone as partial clone
+	 */
+	public static Set<String> getGitPartialCloneProjects() {
+		Set<String> projects = new HashSet<>();
+		for (String project : getStore().getString(GIT_PARTIAL_CLONE_PROJECTS).split(",")) {
+			if (!project.isBlank()) {
+				projects.add(project.trim());
+			}
+		}
+		return projects;
+	}
+
+	public static String getGitPartialCloneFilter() {
+		return getStore().getString(GIT_PARTIAL_CLONE_FILTER);
+	}
+
+	public static boolean isGitPrefetchInBackground() {
+		return getStore().getBoolean(GIT_PREFETCH_IN_BACKGROUND);
+	}
+
+	/**
+	 * @return the minutes between two background fetches, at least 1
+	 */
+	public static int getGitPrefetchIntervalMinutes() {
+		return Math.max(1, getStore().getInt(GIT_PREFETCH_INTERVAL_MINUTES));
+	}
+
+	/**
+	 * @return the highest number of repositories pruned in parallel, at least 1
+	 */
+	public static int getGitLfsPruneMaxParallelism() {
+		return Math.max(1, getStore().getInt(GIT_LFS_PRUNE_MAX_PARALLELISM));
+	}
+
+	public static boolean isGitLfsPruneDryRun() {
+		return getStore().getBoolean(GIT_LFS_PRUNE_DRY_RUN);
+	}
+
+	public static boolean isGitLfsSharedStore() {
+		return getStore().getBoolean(GIT_LFS_SHARED_STORE);
+	}
+
     public static String getEclipseStorePath(){
         return WorkspaceFactory.getWorkspace().getRoot().getLocation().toPath().resolve(ECLIPSE_STORE_PATH).toString();
     }
@@ -375,7 +375,8 @@ public class ProjectImpl implements IProject{
     
     @Override
     public boolean isAccessible() {
-        throw new UnsupportedOperationException("Unimplemented method 'isAccessible()'");
+        // Standalone projects are never closed
+        return exists();
     }
     
     @Override
@@ -648,7 +649,8 @@ public class ProjectImpl implements IProject{
     
     @Override
     public boolean isOpen() {
-        throw new UnsupportedOperationException("Unimplemented method 'isOpen()'");
+        // Standalone projects are never closed
+        return exists();
     }
     
     @Override
@@ -24,10 +24,6 @@ public class Activator extends AbstractUIPlugin {
 		jobQueue.add(job);
 	}
 	
-	synchronized public boolean isJobQueueEmpty() {
-		return jobQueue.isEmpty();
-	}
-	
 	
 	/**
 	 * The constructor
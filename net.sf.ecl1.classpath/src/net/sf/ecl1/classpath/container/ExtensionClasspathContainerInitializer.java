@@ -15,6 +15,8 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.core.ClasspathContainerInitializer;
+import org.eclipse.jdt.core.IAccessRule;
+import org.eclipse.jdt.core.IClasspathAttribute;
 import org.eclipse.jdt.core.IClasspathContainer;
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaProject;
@@ -90,13 +92,8 @@ public class ExtensionClasspathContainerInitializer extends ClasspathContainerIn
 		// search for webapps each time we want to update the classpath container
 		EXTENSION_UTIL.updateWebappsProjectReference();
 
-		// now search extensions etc.
-		Set<String> extensionsForClasspathContainerSet = getExtensionsInClasspathContainer(containerPath);
-		
-		Collection<IClasspathEntry> classpathContainerEntryList = createClasspathContainerEntries(extensionsForClasspathContainerSet);
-		if (classpathContainerEntryList != null && !classpathContainerEntryList.isEmpty()) {
-			IClasspathEntry[] classpathContainerEntryArray = classpathContainerEntryList.toArray(new IClasspathEntry[classpathContainerEntryList.size()]);
-			ExtensionClassPathContainer extensionClassPathContainer = new ExtensionClassPathContainer(containerPath, classpathContainerEntryArray);
+		IClasspathContainer extensionClassPathContainer = createClasspathContainer(containerPath);
+		if (extensionClassPathContainer != null) {
 			IClasspathContainer[] iClasspathContainers = new IClasspathContainer[] { extensionClassPathContainer };
 			IJavaProject[] iJavaProjects = new IJavaProject[] { project };
 			JavaCore.setClasspathContainer(containerPath, iJavaProjects, iClasspathContainers, new NullProgressMonitor());
@@ -105,6 +102,23 @@ public class ExtensionClasspathContainerInitializer extends ClasspathContainerIn
 		}
 	}
 
+	/**
+	 * Resolves the extensions of a container. The caller must update the reference to the webapps project before.
+	 * 
+	 * @param containerPath path of the ecl1 container, which contains the names of its extensions
+	 * @return container with the current entries, null if it has none
+	 */
+	static IClasspathContainer createClasspathContainer(IPath containerPath) {
+		Set<String> extensionsForClasspathContainerSet = getExtensionsInClasspathContainer(containerPath);
+		
+		Collection<IClasspathEntry> classpathContainerEntryList = createClasspathContainerEntries(extensionsForClasspathContainerSet);
+		if (classpathContainerEntryList == null || classpathContainerEntryList.isEmpty()) {
+			return null;
+		}
+		IClasspathEntry[] classpathContainerEntryArray = classpathContainerEntryList.toArray(new IClasspathEntry[classpathContainerEntryList.size()]);
+		return new ExtensionClassPathContainer(containerPath, classpathContainerEntryArray);
+	}
+
 
 	/**
 	 * Parse the ecl1 container and return the names of all extensions within the container
@@ -140,7 +154,7 @@ public class ExtensionClasspathContainerInitializer extends ClasspathContainerIn
 		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
 		IPath workspace = root.getRawLocation();
 
-		Map<String, String> extensions = EXTENSION_UTIL.findAllExtensions();
+		Map<String, String> extensions = EXTENSION_UTIL.getExtensions();
 		for (Map.Entry<String, String> extension : extensions.entrySet()) {
 			String extensionName = extension.getKey();
 			String simpleExtensionPath = extension.getValue();
@@ -153,7 +167,10 @@ public class ExtensionClasspathContainerInitializer extends ClasspathContainerIn
 					// create a lib entry
 					IPath sourceAttachmentPath = workspace.append(fullExtensionPath);
 					IPath sourceAttachmentRootPath = null;
-					IClasspathEntry libraryEntry = JavaCore.newLibraryEntry(fullExtensionPath, sourceAttachmentPath, sourceAttachmentRootPath, true);
+					// attach the prebuilt JDT index of the jar, so that JDT does not index it again
+					IPath jarLocation = p.getFolder(HisConstants.EXTENSIONS_FOLDER).getFile(simpleExtensionPath).getLocation();
+					IClasspathAttribute[] extraAttributes = jarLocation != null ? ExtensionJarIndexCache.getIndexAttributes(jarLocation.toFile()) : new IClasspathAttribute[0];
+					IClasspathEntry libraryEntry = JavaCore.newLibraryEntry(fullExtensionPath, sourceAttachmentPath, sourceAttachmentRootPath, new IAccessRule[0], extraAttributes, true);
 					result.add(libraryEntry);
 					logger.debug("Creating new container entry for library: " + fullExtensionPath.toString()
 					+ "\n * sourceAttachmentPath: " + sourceAttachmentPath + "\n * sourceAttachmentRootPath: " + sourceAttachmentRootPath);
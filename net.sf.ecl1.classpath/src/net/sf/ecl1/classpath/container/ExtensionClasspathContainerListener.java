@@ -6,7 +6,6 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.IResourceDelta;
-import org.eclipse.core.resources.ResourcesPlugin;
 import net.sf.ecl1.classpath.Activator;
 import net.sf.ecl1.utilities.logging.ConsoleLogger;
 
@@ -73,10 +72,7 @@ public class ExtensionClasspathContainerListener implements IResourceChangeListe
 			
 		
 		if ( !deletedProjects.isEmpty() || !addedProjects.isEmpty()) {
-			ExtensionClasspathContainerUpdateJob updateJob = new ExtensionClasspathContainerUpdateJob(deletedProjects,addedProjects);
-			Activator.getDefault().addJob(updateJob);
-			updateJob.setRule(ResourcesPlugin.getWorkspace().getRuleFactory().buildRule());
-			updateJob.schedule();
+			ExtensionClasspathContainerUpdateScheduler.getInstance().schedule(deletedProjects, addedProjects);
 		}
 		
 	}
@@ -74,7 +74,7 @@ public class ExtensionClasspathContainerPage extends WizardPage implements IClas
         // before searching extensions, we search for webapps dynamically just in case it has been created after startup
     	EXTENSION_UTIL.updateWebappsProjectReference();
     	// search all extensions eligible to be added to the classpath container
-        Collection<String> extensionNames = EXTENSION_UTIL.findAllExtensions().keySet();
+        Collection<String> extensionNames = EXTENSION_UTIL.getExtensions().keySet();
         for (String extensionName : extensionNames) {
             TableItem tableItem = new TableItem(extensionsTable, SWT.NONE);
             tableItem.setText(1, extensionName);
@@ -1,50 +1,65 @@
 package net.sf.ecl1.classpath.container;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.core.resources.IBuildConfiguration;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.jdt.core.ClasspathContainerInitializer;
+import org.eclipse.jdt.core.IClasspathContainer;
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
-import org.eclipse.ui.PlatformUI;
-import org.eclipse.ui.actions.GlobalBuildAction;
 import net.sf.ecl1.classpath.Activator;
+import net.sf.ecl1.utilities.hisinone.ExtensionUtil;
 import net.sf.ecl1.utilities.hisinone.HisConstants;
 import net.sf.ecl1.utilities.logging.ConsoleLogger;
 
-/** Updates the ecl1 classpath container */
+/** Updates the ecl1 classpath container with the changes collected by the {@link ExtensionClasspathContainerUpdateScheduler} */
 public class ExtensionClasspathContainerUpdateJob extends Job {
 
 	private static final ConsoleLogger logger = new ConsoleLogger(Activator.getDefault().getLog(), Activator.PLUGIN_ID, ExtensionClasspathContainerUpdateJob.class.getSimpleName()); 
 	
-	/* 
-	 * Closing or removing a project must trigger an update job, because
-	 * the closed or removed project might have contained an ecl1 classpath container. 
-	 */
-	Set<IProject> removedProjects;
-	/*
-	 * Addid a project must trigger an update job, because 
-	 * the project might be a member of the ecl1 classpath container
-	 */
-	Set<IProject> addedProjects;
+	private final ExtensionClasspathContainerUpdateScheduler scheduler;
 		
-	public ExtensionClasspathContainerUpdateJob(Set<IProject> removedProjects,
-			Set<IProject> addedProjects) {
+	ExtensionClasspathContainerUpdateJob(ExtensionClasspathContainerUpdateScheduler scheduler) {
 		super("Updating ecl1 classpath container");
-		this.removedProjects = removedProjects;
-		this.addedProjects = addedProjects;
+		this.scheduler = scheduler;
 	}
 	
 	
 	@Override
 	protected IStatus run(IProgressMonitor monitor) {		
+		/* 
+		 * Closing or removing a project must trigger an update job, because
+		 * the closed or removed project might have contained an ecl1 classpath container. 
+		 */
+		Set<IProject> removedProjects = new HashSet<>();
+		/*
+		 * Addid a project must trigger an update job, because 
+		 * the project might be a member of the ecl1 classpath container
+		 */
+		Set<IProject> addedProjects = new HashSet<>();
+		scheduler.takePending(removedProjects, addedProjects);
+		
 		ProjectsWithExtensionClasspathContainer projectsWithContainer = ProjectsWithExtensionClasspathContainer.getInstance();
 		
 		try {
@@ -65,20 +80,13 @@ public class ExtensionClasspathContainerUpdateJob extends Job {
 				/*
 				 * Update all projects with an ecl1 classpath container
 				 */
-				ClasspathContainerInitializer initializer = JavaCore.getClasspathContainerInitializer(HisConstants.NET_SF_ECL1_ECL1_CONTAINER_ID);
-				projectLoop: for(IProject project : projectsWithContainer.getProjects()) {
-					IJavaProject javaProject = JavaCore.create(project);
-					for(IClasspathEntry classpathEntry : javaProject.getRawClasspath()) {
-						
-						if (classpathEntry.getEntryKind() == IClasspathEntry.CPE_CONTAINER && 
-								classpathEntry.getPath().segment(0).equals(HisConstants.NET_SF_ECL1_ECL1_CONTAINER_ID )) {
-							initializer.initialize(classpathEntry.getPath(), javaProject);
-							logger.debug("The ecl1 classpath container of the following project was updated");
-							//We are done with this project. Process the next one
-							continue projectLoop;
-						}
-					}
+				Set<IProject> changedProjects = updateClasspathContainers(projectsWithContainer.getProjects(), monitor);
+				if (changedProjects == null) {
+					//Canceled by the user or on shutdown, the changes are kept for the next run
+					scheduler.restorePending(removedProjects, addedProjects);
+					return Status.CANCEL_STATUS;
 				}
+				scheduler.addProjectsToBuild(changedProjects);
 			}
 				
 				
@@ -87,17 +95,108 @@ public class ExtensionClasspathContainerUpdateJob extends Job {
 			return Status.CANCEL_STATUS;
 		}
 		/*
-		 * Check, if there are other jobs scheduled for updating the ecl1 classpath container. 
-		 * If no job is scheduled anymore, we are the last one and can trigger a full build
+		 * Check, if there are further changes for updating the ecl1 classpath container. 
+		 * If there are none, this is the last update of the burst and can trigger the build
 		 */
-		if (Activator.getDefault().isJobQueueEmpty()) {
-			//Trigger a global rebuild, because eclipse does not realize that a build is necessary by itself
-			GlobalBuildAction build = new GlobalBuildAction(PlatformUI.getWorkbench().getActiveWorkbenchWindow(),
-					IncrementalProjectBuilder.INCREMENTAL_BUILD);
-			build.doBuild();
+		if (!scheduler.hasPending()) {
+			//Trigger a build, because eclipse does not realize that a build is necessary by itself
+			Set<IProject> projectsToBuild = scheduler.takeProjectsToBuild();
+			try {
+				build(projectsToBuild, monitor);
+			} catch (OperationCanceledException e) {
+				scheduler.addProjectsToBuild(projectsToBuild);
+				return Status.CANCEL_STATUS;
+			} catch (CoreException e) {
+				logger.error2("Building the projects with a changed ecl1 classpath container caused an exception. This was the exception: ", e);
+			}
 		}
 		
 		return Status.OK_STATUS;
 	}
 
+	/**
+	 * Computes the containers of all projects and sets those that differ from the current ones in one batch.
+	 * Unchanged containers are not set again, so that JDT does not reindex anything for them.
+	 * 
+	 * @param projects projects with an ecl1 classpath container
+	 * @return projects whose container was changed, null if the job was canceled
+	 */
+	private Set<IProject> updateClasspathContainers(Set<IProject> projects, IProgressMonitor monitor) throws CoreException {
+		// search for webapps once for all containers
+		ExtensionUtil.getInstance().updateWebappsProjectReference();
+
+		// Projects with the same container path get the same container
+		Map<IPath, IClasspathContainer> containers = new HashMap<>();
+		Map<IPath, List<IJavaProject>> changedJavaProjects = new LinkedHashMap<>();
+		Set<IProject> changedProjects = new HashSet<>();
+		projectLoop: for(IProject project : new ArrayList<>(projects)) {
+			if (monitor.isCanceled()) {
+				return null;
+			}
+			if (!project.isOpen()) {
+				continue;
+			}
+			IJavaProject javaProject = JavaCore.create(project);
+			for(IClasspathEntry classpathEntry : javaProject.getRawClasspath()) {
+				
+				if (classpathEntry.getEntryKind() == IClasspathEntry.CPE_CONTAINER && 
+						classpathEntry.getPath().segment(0).equals(HisConstants.NET_SF_ECL1_ECL1_CONTAINER_ID )) {
+					IPath containerPath = classpathEntry.getPath();
+					if (!containers.containsKey(containerPath)) {
+						containers.put(containerPath, ExtensionClasspathContainerInitializer.createClasspathContainer(containerPath));
+					}
+					IClasspathContainer container = containers.get(containerPath);
+					if (container == null) {
+						logger.debug("No entries for classpath container '" + containerPath + "' in  '" + project.getName() + "'.");
+					} else if (isChanged(JavaCore.getClasspathContainer(containerPath, javaProject), container)) {
+						changedJavaProjects.computeIfAbsent(containerPath, path -> new ArrayList<>()).add(javaProject);
+						changedProjects.add(project);
+					}
+					//We are done with this project. Process the next one
+					continue projectLoop;
+				}
+			}
+		}
+
+		if (!changedJavaProjects.isEmpty()) {
+			// One batch, so that JDT processes the changes of all projects together
+			JavaCore.run(batchMonitor -> {
+				for (Map.Entry<IPath, List<IJavaProject>> entry : changedJavaProjects.entrySet()) {
+					IJavaProject[] javaProjects = entry.getValue().toArray(new IJavaProject[0]);
+					IClasspathContainer[] projectContainers = new IClasspathContainer[javaProjects.length];
+					Arrays.fill(projectContainers, containers.get(entry.getKey()));
+					JavaCore.setClasspathContainer(entry.getKey(), javaProjects, projectContainers, batchMonitor);
+				}
+			}, new NullProgressMonitor());
+			logger.debug("The ecl1 classpath container of the following projects was updated: " + changedProjects);
+		}
+		return changedProjects;
+	}
+
+	private static boolean isChanged(IClasspathContainer current, IClasspathContainer container) {
+		return current == null || !Arrays.equals(current.getClasspathEntries(), container.getClasspathEntries());
+	}
+
+	/**
+	 * Builds the given projects and the projects that depend on them.
+	 */
+	private static void build(Set<IProject> projects, IProgressMonitor monitor) throws CoreException {
+		Set<IProject> affectedProjects = new LinkedHashSet<>();
+		Deque<IProject> queue = new ArrayDeque<>(projects);
+		while (!queue.isEmpty()) {
+			IProject project = queue.poll();
+			if (project.isOpen() && affectedProjects.add(project)) {
+				queue.addAll(Arrays.asList(project.getReferencingProjects()));
+			}
+		}
+		if (affectedProjects.isEmpty()) {
+			return;
+		}
+		List<IBuildConfiguration> buildConfigs = new ArrayList<>();
+		for (IProject project : affectedProjects) {
+			buildConfigs.add(project.getActiveBuildConfig());
+		}
+		ResourcesPlugin.getWorkspace().build(buildConfigs.toArray(new IBuildConfiguration[0]), IncrementalProjectBuilder.INCREMENTAL_BUILD, true, monitor);
+	}
+
 }
@@ -0,0 +1,139 @@
+package net.sf.ecl1.classpath.container;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import net.sf.ecl1.classpath.Activator;
+
+/**
+ * Coalesces the updates of the ecl1 classpath container.
+ *
+ * The added and removed projects of all changes within a short debounce window are merged into one pending update,
+ * which is run by a single {@link ExtensionClasspathContainerUpdateJob}. A change that arrives while the job is waiting
+ * postpones it, so that a burst of changes (e.g. importing many extensions or a batch pull) leads to a single
+ * recompute of the containers and a single build of the projects whose container was changed. A running job is never
+ * interrupted, so that a steady stream of changes cannot starve the update. It runs again for the changes that arrived
+ * meanwhile, and the build waits for the last run.
+ */
+class ExtensionClasspathContainerUpdateScheduler {
+
+	/** Quiet time after the last change before the update starts */
+	static final long DEBOUNCE_MILLIS = 500;
+
+	/** Longest time an update is postponed by a steady stream of changes */
+	static final long MAX_DELAY_MILLIS = 5000;
+
+	private static final ExtensionClasspathContainerUpdateScheduler instance = new ExtensionClasspathContainerUpdateScheduler();
+
+	/* Projects that were closed or removed since the last update, see ExtensionClasspathContainerUpdateJob */
+	private final Set<IProject> removedProjects = new HashSet<>();
+
+	/* Projects that were opened or added since the last update */
+	private final Set<IProject> addedProjects = new HashSet<>();
+
+	/* Projects whose container was changed by an update and that were not built yet */
+	private final Set<IProject> projectsToBuild = new HashSet<>();
+
+	/* Time of the first change that is not yet handled, -1 if there is none */
+	private long firstChangeMillis = -1;
+
+	private ExtensionClasspathContainerUpdateJob job;
+
+	private ExtensionClasspathContainerUpdateScheduler() {}
+
+	static ExtensionClasspathContainerUpdateScheduler getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Adds a change to the pending update and (re)starts the debounce window.
+	 * A later change of the same project overrides an earlier one, e.g. a project that is closed and opened again counts as added.
+	 *
+	 * @param removed closed or removed projects
+	 * @param added opened or added projects
+	 */
+	synchronized void schedule(Set<IProject> removed, Set<IProject> added) {
+		for (IProject project : removed) {
+			addedProjects.remove(project);
+			removedProjects.add(project);
+		}
+		for (IProject project : added) {
+			removedProjects.remove(project);
+			addedProjects.add(project);
+		}
+
+		long now = System.currentTimeMillis();
+		if (firstChangeMillis < 0) {
+			firstChangeMillis = now;
+		}
+		long delay = Math.max(0, Math.min(DEBOUNCE_MILLIS, firstChangeMillis + MAX_DELAY_MILLIS - now));
+
+		if (job == null) {
+			job = new ExtensionClasspathContainerUpdateJob(this);
+			job.setRule(ResourcesPlugin.getWorkspace().getRuleFactory().buildRule());
+			Activator.getDefault().addJob(job);
+		}
+		// A waiting job is put to sleep and woken up again, so that the delay starts again
+		if (job.sleep()) {
+			job.wakeUp(delay);
+		}
+		// A job that is not scheduled starts after the delay, a running job is rescheduled as soon as it finishes
+		job.schedule(delay);
+	}
+
+	/**
+	 * Moves the pending changes to the given sets.
+	 */
+	synchronized void takePending(Set<IProject> removed, Set<IProject> added) {
+		removed.addAll(removedProjects);
+		added.addAll(addedProjects);
+		removedProjects.clear();
+		addedProjects.clear();
+		firstChangeMillis = -1;
+	}
+
+	/**
+	 * Returns the changes of a canceled update. They are older than the pending changes, which take precedence.
+	 */
+	synchronized void restorePending(Set<IProject> removed, Set<IProject> added) {
+		for (IProject project : removed) {
+			if (!addedProjects.contains(project)) {
+				removedProjects.add(project);
+			}
+		}
+		for (IProject project : added) {
+			if (!removedProjects.contains(project)) {
+				addedProjects.add(project);
+			}
+		}
+		if (firstChangeMillis < 0 && hasPending()) {
+			firstChangeMillis = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Remembers projects that must be built after the last update of a burst.
+	 */
+	synchronized void addProjectsToBuild(Set<IProject> projects) {
+		projectsToBuild.addAll(projects);
+	}
+
+	/**
+	 * @return the projects to build, which are removed from the scheduler
+	 */
+	synchronized Set<IProject> takeProjectsToBuild() {
+		Set<IProject> projects = new HashSet<>(projectsToBuild);
+		projectsToBuild.clear();
+		return projects;
+	}
+
+	/**
+	 * @return true if there are changes that were not yet taken by the job
+	 */
+	synchronized boolean hasPending() {
+		return !removedProjects.isEmpty() || !addedProjects.isEmpty();
+	}
+}
@@ -0,0 +1,270 @@
+package net.sf.ecl1.classpath.container;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.index.JavaIndexer;
+
+import net.sf.ecl1.classpath.Activator;
+import net.sf.ecl1.utilities.general.JsonUtil;
+import net.sf.ecl1.utilities.general.WorkspaceSupport;
+import net.sf.ecl1.utilities.logging.ConsoleLogger;
+
+/**
+ * Prebuilt JDT index files of the extension jars of webapps.
+ *
+ * The index files are stored in the workspace metadata and named by the content hash of the jar and the JDT version,
+ * so that a jar that comes back after switching a webapps branch reuses its index. The library entries of the ecl1
+ * classpath container point to them with the index location attribute, which spares JDT from indexing the jars itself.
+ * The jars are hashed and missing indexes are created in the background, afterwards the containers are updated to
+ * attach them. The hashes are stored by path, length and modification time of the jar, so that a jar is only read
+ * again when it changed.
+ */
+class ExtensionJarIndexCache {
+
+	private static final ConsoleLogger logger = new ConsoleLogger(Activator.getDefault().getLog(), Activator.PLUGIN_ID, ExtensionJarIndexCache.class.getSimpleName());
+
+	private static final String DIRECTORY_NAME = "jar-indexes";
+
+	private static final String INDEX_SUFFIX = ".index";
+
+	/** Index files that were not used for this time are deleted */
+	private static final long MAX_UNUSED_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+	/** Used index files are touched at most once in this time */
+	private static final long TOUCH_INTERVAL_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+	private static final IClasspathAttribute[] NO_ATTRIBUTES = new IClasspathAttribute[0];
+
+	private static final String HASHES_FILE_NAME = "jar-hashes.json";
+
+	/** Index file name of a version of a jar, identified without reading it */
+	private static class JarHash {
+		long length;
+		long lastModified;
+		String indexName;
+	}
+
+	/** Stored form of the hashes */
+	private static class HashState {
+		Map<String, JarHash> jars = new HashMap<>();
+	}
+
+	/** Index file names of the jars that were hashed by their path, loaded on first use */
+	private static Map<String, JarHash> hashes;
+
+	/** Jars that need a hash or an index */
+	private static final Set<File> pendingJars = ConcurrentHashMap.newKeySet();
+
+	private static IndexJob indexJob;
+
+	private ExtensionJarIndexCache() {}
+
+	/**
+	 * The jars are hashed in the background, so this never reads a jar.
+	 *
+	 * @param jar an extension jar
+	 * @return the index location attribute of the jar, no attribute if its hash or index is not known yet
+	 */
+	static IClasspathAttribute[] getIndexAttributes(File jar) {
+		if (!jar.isFile()) {
+			return NO_ATTRIBUTES;
+		}
+		String indexName = getIndexName(jar);
+		File indexFile = indexName != null ? new File(getDirectory(), indexName) : null;
+		if (indexFile == null || !indexFile.isFile()) {
+			requestIndex(jar);
+			return NO_ATTRIBUTES;
+		}
+		long now = System.currentTimeMillis();
+		if (indexFile.lastModified() < now - TOUCH_INTERVAL_MILLIS) {
+			indexFile.setLastModified(now);
+		}
+		return new IClasspathAttribute[] { JavaCore.newClasspathAttribute(IClasspathAttribute.INDEX_LOCATION_ATTRIBUTE_NAME, indexFile.toURI().toString()) };
+	}
+
+	/**
+	 * @return the index file name of the current content of the jar, null if it was not hashed yet
+	 */
+	private static String getIndexName(File jar) {
+		JarHash hash = getHashes().get(jar.getAbsolutePath());
+		return hash != null && hash.length == jar.length() && hash.lastModified == jar.lastModified() ? hash.indexName : null;
+	}
+
+	private static synchronized Map<String, JarHash> getHashes() {
+		if (hashes == null) {
+			hashes = new ConcurrentHashMap<>();
+			try {
+				HashState state = JsonUtil.fromJson(HashState.class, getHashesFile());
+				if (state != null && state.jars != null) {
+					hashes.putAll(state.jars);
+				}
+			} catch (IOException e) {
+				logger.warn("Could not read the hashes of extension jars: " + e.getMessage());
+			}
+		}
+		return hashes;
+	}
+
+	private static void saveHashes() {
+		HashState state = new HashState();
+		state.jars.putAll(getHashes());
+		try {
+			JsonUtil.toJson(state, getHashesFile());
+		} catch (IOException e) {
+			logger.warn("Could not save the hashes of extension jars: " + e.getMessage());
+		}
+	}
+
+	private static Path getHashesFile() {
+		return getDirectory().toPath().resolve(HASHES_FILE_NAME);
+	}
+
+	/**
+	 * @return hash of the content of the jar and of the JDT version, whose index format may change
+	 */
+	private static String hash(File jar) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = Files.newInputStream(jar.toPath())) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		digest.update(JavaCore.getPlugin().getBundle().getVersion().toString().getBytes(StandardCharsets.UTF_8));
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	private static File getDirectory() {
+		return WorkspaceSupport.getPluginStateLocation(Activator.PLUGIN_ID).resolve(DIRECTORY_NAME).toFile();
+	}
+
+	private static synchronized void requestIndex(File jar) {
+		if (!pendingJars.add(jar)) {
+			return;
+		}
+		if (indexJob == null) {
+			indexJob = new IndexJob();
+			Activator.getDefault().addJob(indexJob);
+		}
+		// A running job is rescheduled as soon as it finishes
+		indexJob.schedule();
+	}
+
+	/**
+	 * Creates the missing index files and deletes those that were not used for a long time.
+	 */
+	private static class IndexJob extends Job {
+
+		IndexJob() {
+			super("Indexing ecl1 extension jars");
+			setPriority(Job.LONG);
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			File directory = getDirectory();
+			directory.mkdirs();
+			int created = 0;
+			boolean hashed = false;
+			boolean canceled = false;
+			for (File jar : pendingJars) {
+				if (monitor.isCanceled()) {
+					canceled = true;
+					break;
+				}
+				pendingJars.remove(jar);
+				if (!jar.isFile()) {
+					continue;
+				}
+				String indexName = getIndexName(jar);
+				if (indexName == null) {
+					JarHash hash = new JarHash();
+					// Stamped before reading, so that a jar that changes meanwhile is hashed again
+					hash.length = jar.length();
+					hash.lastModified = jar.lastModified();
+					try {
+						hash.indexName = hash(jar) + INDEX_SUFFIX;
+					} catch (IOException e) {
+						logger.warn("Could not read extension jar " + jar + ": " + e.getMessage());
+						continue;
+					}
+					getHashes().put(jar.getAbsolutePath(), hash);
+					indexName = hash.indexName;
+					hashed = true;
+				}
+				File indexFile = new File(directory, indexName);
+				if (indexFile.isFile()) {
+					continue;
+				}
+				File tempFile = new File(directory, indexName + ".tmp");
+				try {
+					JavaIndexer.generateIndexForJar(jar.getAbsolutePath(), tempFile.getAbsolutePath());
+					// Readers never see a partial index
+					Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+					created++;
+				} catch (IOException e) {
+					logger.warn("Could not create the index of extension jar " + jar + ": " + e.getMessage());
+					tempFile.delete();
+				}
+			}
+			// Forget the jars that were deleted, e.g. by switching the webapps branch
+			hashed |= getHashes().keySet().removeIf(path -> !new File(path).isFile());
+			if (hashed) {
+				saveHashes();
+			}
+			if (canceled) {
+				return Status.CANCEL_STATUS;
+			}
+			deleteUnusedIndexes(directory);
+
+			if (created > 0) {
+				logger.info("Created " + created + " index files of extension jars");
+			}
+			if (created > 0 || hashed) {
+				// Attach the new or now known index files to the library entries
+				ExtensionClasspathContainerUpdateScheduler.getInstance().schedule(Set.of(), Set.of());
+			}
+			return Status.OK_STATUS;
+		}
+
+		private static void deleteUnusedIndexes(File directory) {
+			File[] indexFiles = directory.listFiles((dir, name) -> name.endsWith(INDEX_SUFFIX));
+			if (indexFiles == null) {
+				return;
+			}
+			long oldest = System.currentTimeMillis() - MAX_UNUSED_MILLIS;
+			for (File indexFile : indexFiles) {
+				if (indexFile.lastModified() < oldest && indexFile.delete()) {
+					logger.debug("Deleted unused index file " + indexFile.getName());
+				}
+			}
+		}
+	}
+}
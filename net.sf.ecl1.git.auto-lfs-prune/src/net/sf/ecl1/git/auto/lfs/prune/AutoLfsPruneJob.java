@@ -2,41 +2,49 @@ package net.sf.ecl1.git.auto.lfs.prune;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
-import org.eclipse.jgit.util.FS;
-import org.eclipse.jgit.util.FS.ExecutionResult;
 
+import net.sf.ecl1.utilities.general.GitUtil;
+import net.sf.ecl1.utilities.general.LfsUtil;
+import net.sf.ecl1.utilities.general.SharedLfsStore;
 import net.sf.ecl1.utilities.logging.ICommonLogger;
 import net.sf.ecl1.utilities.logging.LoggerFactory;
+import net.sf.ecl1.utilities.preferences.PreferenceWrapper;
 import net.sf.ecl1.utilities.standalone.workspace.WorkspaceFactory;
 
-public class AutoLfsPruneJob extends Job {
-	
+public final class AutoLfsPruneJob extends Job {
+
     private static final ICommonLogger logger = LoggerFactory.getLogger(AutoLfsPruneJob.class.getSimpleName(), AutoLfsPruneActivator.PLUGIN_ID, AutoLfsPruneActivator.getDefault());
-    	
+
+    /** Interval in which the job checks whether it was canceled */
+    private static final long CANCEL_POLL_MILLIS = 200;
+
 	public AutoLfsPruneJob() {
 		super("ecl1: Pruning all git versioned projects in the workspace");
-	}
-	
-	private ExecutionResult runCommandInRepo(String command, Repository repo) throws IOException, InterruptedException {
-		FS fs = repo.getFS();
-		
-		ProcessBuilder pb = fs.runInShell(command, new String[0]);
-		pb.directory(repo.getWorkTree());
-		pb.environment().put(Constants.GIT_DIR_KEY, repo.getDirectory().getAbsolutePath());
-	
-		return fs.execute(pb, null);
+		setPriority(Job.DECORATE);
 	}
 
 	@Override
@@ -48,65 +56,216 @@ public class AutoLfsPruneJob extends Job {
 		}
 		logger.info("Found " + projectNames.length + " projects in Workspace: " + Arrays.toString(projectNames));
 		monitor.beginTask("Pruning", projects.size());
-		
-		for (IProject p : projects) {
-			/*
-			 * Check if the user has requested canceling of pruning
-			 */
-			if(monitor.isCanceled()) {
-				return Status.CANCEL_STATUS;
-			}
 
-			String name = p.getName();
-			monitor.subTask(name);
-			File gitFile = p.getLocation().append(".git").toFile();
-			File projectRoot = p.getLocation().toFile();
-			
-			if (gitFile.isDirectory()) {
-				logger.info(name + " with location " + projectRoot.getAbsolutePath());
-			}else {
-				logger.info(name + "(worktree) with location " + projectRoot.getAbsolutePath());
-			}
-			
-			/*
-			 * Try to open git-repo of this project
-			 */
-		    try {
-		    	Repository repository = new FileRepositoryBuilder()
-		            .setWorkTree(projectRoot)
-		            .readEnvironment()
-		            .findGitDir(projectRoot)
-		            .build();
-		    	
-				try {
-					ExecutionResult er = runCommandInRepo("git lfs prune", repository);
-					
-					if (er.getRc() != 0) {
-						logger.error2("Command: \"git lfs prune\" returned an error code! Prune attempt was not successful...");
-						logger.error2("Output of the error stream: " + new String(er.getStderr().toByteArray()));
-						monitor.worked(1);	
-						continue;
-					}
-					
-				} catch (IOException | InterruptedException e) {
-					logger.error2("Failed to run \"git lfs prune\" command in the following project: "+ name);
-					logger.error2("Error message: " + e.getMessage(),e);
-					monitor.worked(1);	
+		int parallelism = PreferenceWrapper.getGitLfsPruneMaxParallelism();
+		boolean dryRun = PreferenceWrapper.isGitLfsPruneDryRun();
+		AtomicInteger prunedObjects = new AtomicInteger();
+		AtomicLong prunedBytes = new AtomicLong();
+		AtomicInteger unchanged = new AtomicInteger();
+		AtomicLong linkedBytes = new AtomicLong();
+		boolean shareObjects = SharedLfsStore.isEnabled();
+		PruneState state = PruneState.load();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, "ecl1 git lfs prune");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// Worktrees share the LFS store of their repository, which is pruned once
+		Set<File> prunedStores = new HashSet<>();
+		try {
+			for (IProject p : projects) {
+				File commonDirectory = findRepositoryWithLfsObjects(p.getLocation().toFile());
+				if (commonDirectory == null || !prunedStores.add(commonDirectory)) {
+					worked(monitor);
 					continue;
-				} 
-				logger.info("Successfully finished pruning: " + name);
-				monitor.worked(1);	
-			} catch (org.eclipse.jgit.errors.RepositoryNotFoundException rnfe) {
-				// ignore
-				logger.info(name + " is not managed via Git: " + rnfe.getMessage());
-				monitor.worked(1);	
-			} catch (IOException e) {
-				logger.error2("Error pruning " + name + ": " + e.getMessage(), e);
-				monitor.worked(1);	
+				}
+				executor.execute(() -> {
+					if (monitor.isCanceled()) {
+						// Skip the remaining repositories
+					} else if (isUnchanged(p, commonDirectory, state)) {
+						unchanged.incrementAndGet();
+					} else {
+						LfsPruner.Result result = pruneProject(p, commonDirectory, dryRun, monitor);
+						if (result != null) {
+							prunedObjects.addAndGet(result.prunedObjects());
+							prunedBytes.addAndGet(result.prunedBytes());
+							if (!dryRun) {
+								if (shareObjects) {
+									linkedBytes.addAndGet(deduplicate(p, commonDirectory));
+								}
+								recordPrune(commonDirectory, state);
+							}
+						}
+					}
+					worked(monitor);
+				});
+			}
+			executor.shutdown();
+			while (!executor.awaitTermination(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+				// Running prunes stop when they notice the cancellation
+				if (monitor.isCanceled()) {
+					executor.shutdownNow();
+				}
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
 		}
 
+		state.save();
+		if (!monitor.isCanceled()) {
+			pruneSharedStore(prunedStores, dryRun);
+		}
+		if (linkedBytes.get() > 0) {
+			logger.info("Linked LFS objects to the shared store, which freed " + linkedBytes.get() + " bytes");
+		}
+		logger.info(unchanged.get() + " repositories did not change since their last prune and were skipped");
+		if (dryRun) {
+			logger.info("Dry run of git lfs prune: " + prunedObjects.get() + " LFS objects with " + prunedBytes.get() + " bytes could be deleted");
+		} else {
+			logger.info("Pruned " + prunedObjects.get() + " LFS objects with " + prunedBytes.get() + " bytes");
+		}
 		monitor.done();
-		return Status.OK_STATUS;
+		return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+	}
+
+	private static void worked(IProgressMonitor monitor) {
+		// Progress monitors are not thread safe
+		synchronized (monitor) {
+			monitor.worked(1);
+		}
+	}
+
+	/**
+	 * @return true if the repository did not change since its last prune, so that a prune would delete nothing
+	 */
+	private static boolean isUnchanged(IProject p, File commonDirectory, PruneState state) {
+		try {
+			if (state.isUnchanged(commonDirectory, PruneState.fingerprint(commonDirectory))) {
+				logger.info(p.getName() + " did not change since its last prune");
+				return true;
+			}
+		} catch (IOException e) {
+			logger.debug("Could not compute the fingerprint of " + commonDirectory + ": " + e.getMessage());
+		}
+		return false;
+	}
+
+	/**
+	 * Replaces the LFS objects of a repository with links to the shared store.
+	 *
+	 * @return the bytes freed
+	 */
+	private static long deduplicate(IProject p, File commonDirectory) {
+		try {
+			return SharedLfsStore.deduplicate(LfsUtil.getObjectsDirectory(commonDirectory));
+		} catch (IOException e) {
+			logger.warn("Could not link the LFS objects of " + p.getName() + " to the shared store: " + e.getMessage());
+			return 0;
+		}
+	}
+
+	/**
+	 * Deletes the objects of the shared store that no repository links anymore and reports the saved disk space.
+	 * This also runs if sharing was disabled, so that the objects of the shared store are eventually deleted.
+	 *
+	 * @param commonDirectories git directories of all repositories of the workspace with LFS objects
+	 */
+	private static void pruneSharedStore(Set<File> commonDirectories, boolean dryRun) {
+		if (!SharedLfsStore.getDirectory().isDirectory()) {
+			return;
+		}
+		List<File> objectsDirectories = new ArrayList<>();
+		for (File commonDirectory : commonDirectories) {
+			objectsDirectories.add(LfsUtil.getObjectsDirectory(commonDirectory));
+		}
+		try {
+			Map<String, Integer> references = SharedLfsStore.countReferences(objectsDirectories);
+			long prunedBytes = SharedLfsStore.prune(references, dryRun);
+			logger.info("Shared LFS store: " + references.size() + " objects are linked by " + commonDirectories.size()
+					+ " repositories, which saves " + SharedLfsStore.getSavedBytes(references) + " bytes. "
+					+ (dryRun ? "Unlinked objects with " + prunedBytes + " bytes could be deleted."
+							: "Deleted unlinked objects with " + prunedBytes + " bytes."));
+		} catch (IOException e) {
+			logger.error2("Failed to prune the shared LFS store: " + e.getMessage(), e);
+		}
+	}
+
+	private static void recordPrune(File commonDirectory, PruneState state) {
+		try {
+			// The prune deleted files of the LFS store, so the fingerprint is computed again
+			state.record(commonDirectory, PruneState.fingerprint(commonDirectory));
+		} catch (IOException e) {
+			logger.debug("Could not compute the fingerprint of " + commonDirectory + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the repository of a project if it has LFS objects. Worktrees share the repository and its LFS store.
+	 *
+	 * @return the canonical git directory that holds the LFS objects, null if the project is no git repository or has no LFS objects
+	 */
+	private static File findRepositoryWithLfsObjects(File projectRoot) {
+		if (!new File(projectRoot, Constants.DOT_GIT).exists()) {
+			return null;
+		}
+		try (Repository repository = openRepository(projectRoot)) {
+			Path lfsObjects = LfsUtil.getObjectsDirectory(repository).toPath();
+			if (!Files.isDirectory(lfsObjects)) {
+				return null;
+			}
+			try (Stream<Path> files = Files.walk(lfsObjects)) {
+				if (files.noneMatch(Files::isRegularFile)) {
+					return null;
+				}
+			}
+			return GitUtil.getCommonDirectory(repository.getDirectory()).getCanonicalFile();
+		} catch (IOException e) {
+			logger.debug("Could not find LFS objects of " + projectRoot + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static Repository openRepository(File projectRoot) throws IOException {
+		return new FileRepositoryBuilder()
+				.setWorkTree(projectRoot)
+				.readEnvironment()
+				.findGitDir(projectRoot)
+				.build();
+	}
+
+	/**
+	 * @return the result of the prune, null if it failed or was canceled
+	 */
+	private LfsPruner.Result pruneProject(IProject p, File commonDirectory, boolean dryRun, IProgressMonitor monitor) {
+		String name = p.getName();
+		File projectRoot = p.getLocation().toFile();
+		File gitFile = p.getLocation().append(".git").toFile();
+
+		if (gitFile.isDirectory()) {
+			logger.info(name + " with location " + projectRoot.getAbsolutePath());
+		}else {
+			logger.info(name + "(worktree) with location " + projectRoot.getAbsolutePath());
+		}
+
+		try {
+			LfsPruner pruner = new LfsPruner(commonDirectory, dryRun, monitor::isCanceled);
+			pruner.setThrottled(true);
+			LfsPruner.Result result = pruner.prune();
+			if (dryRun) {
+				logger.info("Dry run of pruning " + name + ": " + result.prunedObjects() + " LFS objects with "
+						+ result.prunedBytes() + " bytes could be deleted, " + result.retainedObjects() + " are retained");
+			} else {
+				logger.info("Successfully finished pruning " + name + ": deleted " + result.prunedObjects() + " LFS objects with "
+						+ result.prunedBytes() + " bytes, " + result.retainedObjects() + " are retained");
+			}
+			return result;
+		} catch (CancellationException e) {
+			logger.info("Pruning of " + name + " was canceled");
+		} catch (IOException e) {
+			logger.error2("Failed to prune the LFS objects of the following project: " + name);
+			logger.error2("Error message: " + e.getMessage(), e);
+		}
+		return null;
 	}
 }
@@ -1,18 +1,53 @@
 package net.sf.ecl1.git.auto.lfs.prune;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Listener;
 import org.eclipse.ui.IStartup;
+import org.eclipse.ui.PlatformUI;
+
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
 
 public class AutoLfsPruneStarter implements IStartup {
     	
+    private static final ICommonLogger logger = LoggerFactory.getLogger(AutoLfsPruneStarter.class.getSimpleName(), AutoLfsPruneActivator.PLUGIN_ID, AutoLfsPruneActivator.getDefault());
+
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+    /** Minutes between two checks whether a prune is due and the machine is idle */
+    private static final long CHECK_INTERVAL_MINUTES = 1;
+
+    /** The IDE is idle if the user did not type or click for this time */
+    private static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final int[] INPUT_EVENTS = { SWT.KeyDown, SWT.MouseDown, SWT.MouseWheel };
+
+    private volatile long lastInput = System.currentTimeMillis();
+
+    /** Start of the last prune, only used by the scheduler thread */
+    private long lastPrune;
     
 	@Override
 	public void earlyStartup() {	
+		if (net.sf.ecl1.utilities.Activator.isRunningInEclipse()) {
+			Display display = PlatformUI.getWorkbench().getDisplay();
+			display.asyncExec(() -> {
+				Listener inputListener = event -> lastInput = System.currentTimeMillis();
+				for (int eventType : INPUT_EVENTS) {
+					display.addFilter(eventType, inputListener);
+				}
+			});
+		}
 		
 		AutoLfsPruneJob pruneJob;
 		if(net.sf.ecl1.utilities.Activator.isRunningInEclipse()){
@@ -21,11 +56,16 @@ public class AutoLfsPruneStarter implements IStartup {
 			pruneJob = new AutoLfsPruneJob();
 		}
 		
-		// Schedules a new auto lfs prune job for immediate execution when run
+		// Schedules a new auto lfs prune job for immediate execution when run, if a prune is due and the machine is idle
 		Runnable autoLfsPruneJobScheduler = new Runnable() {
 			
 			@Override
 			public void run() {
+				long now = System.currentTimeMillis();
+				if (now - lastPrune < TimeUnit.DAYS.toMillis(1) || !isIdle(now) || pruneJob.getState() != Job.NONE) {
+					return;
+				}
+				lastPrune = now;
 				if(net.sf.ecl1.utilities.Activator.isRunningInEclipse()){
 					pruneJob.schedule();
 				}else{
@@ -36,7 +76,10 @@ public class AutoLfsPruneStarter implements IStartup {
 		
 		/*
 		 * Schedule the scheduler ;)
-		 * The runnable is invoked immediately and then periodically every day. If the runnable is run, a new auto lfs prune job is scheduled.
+		 * The runnable is invoked every minute. It schedules a new auto lfs prune job once a day, as soon as the machine is idle.
+		 * 
+		 * Why do we wait until the machine is idle?
+		 * Pruning reads the history of all repositories, which stalled the disks of our developers on startup.
 		 * 
 		 * Why do we run periodically every day?
 		 * At least one user (see 251312#c26) is leaving eclipse open for a very long time (multiple days). This user
@@ -52,7 +95,30 @@ public class AutoLfsPruneStarter implements IStartup {
 		 * re-opening the progress-view, but some users never close the progress-view and therefore the sleeping indication never goes away).
 		 * Since the state of the java scheduler is not graphically represented by eclipse, we use it to schedule the eclipse job periodically. 
 		 */
-		scheduler.scheduleAtFixedRate(autoLfsPruneJobScheduler, 0, 1, TimeUnit.DAYS);
+		scheduler.scheduleWithFixedDelay(() -> {
+			// An exception would stop all further executions of the scheduler
+			try {
+				autoLfsPruneJobScheduler.run();
+			} catch (RuntimeException e) {
+				logger.error2("Could not start git lfs prune", e);
+			}
+		}, 0, CHECK_INTERVAL_MINUTES, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * The machine is idle if the user did not use the IDE for a while, no build is running and the system load is low.
+	 */
+	private boolean isIdle(long now) {
+		if (net.sf.ecl1.utilities.Activator.isRunningInEclipse()) {
+			if (now - lastInput < IDLE_MILLIS
+					|| Job.getJobManager().find(ResourcesPlugin.FAMILY_AUTO_BUILD).length > 0
+					|| Job.getJobManager().find(ResourcesPlugin.FAMILY_MANUAL_BUILD).length > 0) {
+				return false;
+			}
+		}
+		// Negative if the platform does not provide the load average
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		return os.getSystemLoadAverage() < os.getAvailableProcessors() / 2.0;
 	}
 		
 }
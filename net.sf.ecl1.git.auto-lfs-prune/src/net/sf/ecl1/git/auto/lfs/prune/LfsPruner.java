@@ -0,0 +1,326 @@
+package net.sf.ecl1.git.auto.lfs.prune;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.ReflogEntry;
+import org.eclipse.jgit.lib.ReflogReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.FS;
+
+import net.sf.ecl1.utilities.general.LfsUtil;
+
+/**
+ * Deletes the LFS objects of a repository that no retained commit references, like "git lfs prune" but in process.
+ * <p>
+ * Retained are the objects referenced by
+ * <ul>
+ * <li>the checked out commits and the indexes of the repository and its worktrees,</li>
+ * <li>the tips of the local branches,</li>
+ * <li>the tips of remote branches and the reflog entries that are recent (lfs.fetchrecentrefsdays plus lfs.pruneoffsetdays),</li>
+ * <li>all commits that were not pushed, because the remote may not have their objects.</li>
+ * </ul>
+ */
+class LfsPruner {
+
+	/** Days of git lfs defaults, used if the repository does not configure them */
+	private static final int DEFAULT_RECENT_REFS_DAYS = 7;
+	private static final int DEFAULT_PRUNE_OFFSET_DAYS = 3;
+
+	private static final Pattern OID = Pattern.compile("[0-9a-f]{64}");
+
+	/** A throttled prune pauses after working this long, for as long as it worked */
+	private static final long WORK_SLICE_MILLIS = 100;
+
+	/**
+	 * Outcome of a prune
+	 *
+	 * @param prunedObjects objects deleted, or deletable in a dry run
+	 * @param prunedBytes bytes freed, or reclaimable in a dry run
+	 * @param retainedObjects objects kept
+	 */
+	record Result(int prunedObjects, long prunedBytes, int retainedObjects) {
+	}
+
+	private final File commonDirectory;
+	private final boolean dryRun;
+	private final BooleanSupplier isCanceled;
+
+	private boolean throttled;
+
+	private long sliceStart;
+
+	/**
+	 * @param commonDirectory git directory of the repository that holds the objects, shared by its worktrees
+	 * @param dryRun true to only compute what would be deleted
+	 * @param isCanceled stops the prune if it returns true
+	 */
+	LfsPruner(File commonDirectory, boolean dryRun, BooleanSupplier isCanceled) {
+		this.commonDirectory = commonDirectory;
+		this.dryRun = dryRun;
+		this.isCanceled = isCanceled;
+	}
+
+	/**
+	 * @param throttled true to use at most half of the time for disk and CPU work, so that the user is not slowed down
+	 */
+	void setThrottled(boolean throttled) {
+		this.throttled = throttled;
+	}
+
+	/**
+	 * Prunes the LFS store. Nothing is deleted if the retained objects cannot be determined completely.
+	 *
+	 * @throws CancellationException if the prune was canceled
+	 */
+	Result prune() throws IOException {
+		sliceStart = System.nanoTime();
+		try (Repository repository = new FileRepositoryBuilder().setGitDir(commonDirectory).setMustExist(true).build()) {
+			Set<String> retained = collectRetainedObjects(repository);
+			Path lfsObjects = LfsUtil.getObjectsDirectory(repository).toPath();
+
+			List<Path> unreferenced = new ArrayList<>();
+			try (Stream<Path> files = Files.walk(lfsObjects)) {
+				files.filter(Files::isRegularFile)
+						.filter(file -> OID.matcher(file.getFileName().toString()).matches())
+						.filter(file -> !retained.contains(file.getFileName().toString()))
+						.forEach(unreferenced::add);
+			}
+
+			long prunedBytes = 0;
+			for (Path file : unreferenced) {
+				checkpoint();
+				prunedBytes += Files.size(file);
+				if (!dryRun) {
+					Files.delete(file);
+				}
+			}
+			return new Result(unreferenced.size(), prunedBytes, retained.size());
+		}
+	}
+
+	private Set<String> collectRetainedObjects(Repository repository) throws IOException {
+		long recentSince = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(
+				repository.getConfig().getInt("lfs", "fetchrecentrefsdays", DEFAULT_RECENT_REFS_DAYS)
+				+ repository.getConfig().getInt("lfs", "pruneoffsetdays", DEFAULT_PRUNE_OFFSET_DAYS));
+
+		Set<ObjectId> commits = new HashSet<>();
+		List<ObjectId> localTips = new ArrayList<>();
+		List<ObjectId> remoteTips = new ArrayList<>();
+		List<DirCache> indexes = new ArrayList<>();
+
+		// Main working tree and worktrees
+		addCheckout(repository, commonDirectory, localTips, indexes);
+		File[] worktrees = new File(commonDirectory, "worktrees").listFiles(File::isDirectory);
+		if (worktrees != null) {
+			for (File worktree : worktrees) {
+				addCheckout(repository, worktree, localTips, indexes);
+			}
+		}
+
+		try (RevWalk walk = new RevWalk(repository)) {
+			for (Ref ref : repository.getRefDatabase().getRefsByPrefix(Constants.R_REFS)) {
+				ObjectId id = ref.getPeeledObjectId() != null ? ref.getPeeledObjectId() : ref.getObjectId();
+				if (id == null) {
+					continue;
+				}
+				if (ref.getName().startsWith(Constants.R_HEADS) || ref.getName().equals(Constants.R_STASH)) {
+					localTips.add(id);
+				} else if (ref.getName().startsWith(Constants.R_REMOTES)) {
+					remoteTips.add(id);
+					if (isRecentCommit(walk, id, recentSince)) {
+						commits.add(id);
+					}
+				} else if (isRecentCommit(walk, id, recentSince)) {
+					commits.add(id);
+				}
+				addRecentReflogEntries(repository, ref.getName(), recentSince, commits);
+			}
+			addRecentReflogEntries(repository, Constants.HEAD, recentSince, commits);
+			commits.addAll(localTips);
+
+			// Commits that are not on any remote
+			walk.reset();
+			for (ObjectId tip : localTips) {
+				markStart(walk, tip);
+			}
+			for (ObjectId tip : remoteTips) {
+				RevCommit commit = parseCommit(walk, tip);
+				if (commit != null) {
+					walk.markUninteresting(commit);
+				}
+			}
+			for (RevCommit commit : walk) {
+				checkpoint();
+				commits.add(commit.copy());
+			}
+		}
+
+		Set<String> retained = new HashSet<>();
+		try (ObjectReader reader = repository.newObjectReader();
+				RevWalk walk = new RevWalk(reader)) {
+			Set<ObjectId> visited = new HashSet<>();
+			for (ObjectId commitId : commits) {
+				RevCommit commit = parseCommit(walk, commitId);
+				if (commit != null) {
+					addPointers(reader, commit.getTree(), visited, retained);
+				}
+			}
+			for (DirCache index : indexes) {
+				for (int i = 0; i < index.getEntryCount(); i++) {
+					DirCacheEntry entry = index.getEntry(i);
+					if (isFile(entry.getFileMode()) && visited.add(entry.getObjectId())) {
+						addPointer(reader, entry.getObjectId(), retained);
+					}
+				}
+			}
+		}
+		return retained;
+	}
+
+	/**
+	 * Adds the checked out commit and the index of the main working tree or of a worktree.
+	 *
+	 * @param gitDir git directory of the working tree, holding its HEAD and index
+	 */
+	private static void addCheckout(Repository repository, File gitDir, List<ObjectId> localTips, List<DirCache> indexes)
+			throws IOException {
+		File head = new File(gitDir, Constants.HEAD);
+		if (head.isFile()) {
+			String content = Files.readString(head.toPath()).trim();
+			ObjectId id = content.startsWith("ref:")
+					? repository.resolve(content.substring("ref:".length()).trim())
+					: ObjectId.isId(content) ? ObjectId.fromString(content) : null;
+			if (id != null) {
+				localTips.add(id);
+			}
+		}
+		File index = new File(gitDir, "index");
+		if (index.isFile()) {
+			indexes.add(DirCache.read(index, FS.DETECTED));
+		}
+	}
+
+	private static void addRecentReflogEntries(Repository repository, String refName, long recentSince, Set<ObjectId> commits)
+			throws IOException {
+		ReflogReader reflog = repository.getReflogReader(refName);
+		if (reflog == null) {
+			return;
+		}
+		for (ReflogEntry entry : reflog.getReverseEntries()) {
+			if (entry.getWho().getWhen().getTime() < recentSince) {
+				// Entries are ordered from new to old
+				break;
+			}
+			if (!ObjectId.zeroId().equals(entry.getNewId())) {
+				commits.add(entry.getNewId());
+			}
+		}
+	}
+
+	private static boolean isRecentCommit(RevWalk walk, ObjectId id, long recentSince) throws IOException {
+		RevCommit commit = parseCommit(walk, id);
+		return commit != null && commit.getCommitTime() * 1000L >= recentSince;
+	}
+
+	private static void markStart(RevWalk walk, ObjectId id) throws IOException {
+		RevCommit commit = parseCommit(walk, id);
+		if (commit != null) {
+			walk.markStart(commit);
+		}
+	}
+
+	/**
+	 * @return the commit, null if the id references something else, e.g. a tagged tree, or does not exist
+	 */
+	private static RevCommit parseCommit(RevWalk walk, ObjectId id) throws IOException {
+		try {
+			return walk.parseAny(id) instanceof RevCommit commit ? commit : null;
+		} catch (MissingObjectException e) {
+			// A reflog may reference a garbage collected commit, which cannot be checked out anymore
+			return null;
+		}
+	}
+
+	/**
+	 * @return true for regular and executable files, which may both be LFS pointers
+	 */
+	private static boolean isFile(FileMode mode) {
+		return (mode.getBits() & FileMode.TYPE_MASK) == FileMode.TYPE_FILE;
+	}
+
+	/**
+	 * Adds the LFS pointers of a tree. Subtrees and blobs shared with already visited trees are skipped.
+	 */
+	private void addPointers(ObjectReader reader, ObjectId tree, Set<ObjectId> visited, Set<String> retained) throws IOException {
+		if (!visited.add(tree)) {
+			return;
+		}
+		try (TreeWalk treeWalk = new TreeWalk(reader)) {
+			treeWalk.addTree(tree);
+			while (treeWalk.next()) {
+				ObjectId id = treeWalk.getObjectId(0);
+				if (treeWalk.isSubtree()) {
+					if (visited.add(id)) {
+						treeWalk.enterSubtree();
+					}
+				} else if (isFile(treeWalk.getFileMode(0)) && visited.add(id)) {
+					addPointer(reader, id, retained);
+				}
+			}
+		}
+		checkpoint();
+	}
+
+	private static void addPointer(ObjectReader reader, ObjectId blob, Set<String> retained) throws IOException {
+		String oid = LfsUtil.readPointer(reader, blob);
+		if (oid != null) {
+			retained.add(oid);
+		}
+	}
+
+	/**
+	 * Stops a canceled prune and pauses a throttled prune.
+	 */
+	private void checkpoint() {
+		if (isCanceled.getAsBoolean()) {
+			throw new CancellationException("LFS prune was canceled");
+		}
+		if (!throttled) {
+			return;
+		}
+		long workedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sliceStart);
+		if (workedMillis >= WORK_SLICE_MILLIS) {
+			try {
+				Thread.sleep(workedMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException("LFS prune was interrupted");
+			}
+			sliceStart = System.nanoTime();
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package net.sf.ecl1.git.auto.lfs.prune;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+import net.sf.ecl1.utilities.general.JsonUtil;
+import net.sf.ecl1.utilities.general.LfsUtil;
+import net.sf.ecl1.utilities.general.SharedLfsStore;
+import net.sf.ecl1.utilities.general.WorkspaceSupport;
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
+
+/**
+ * Fingerprints of the repositories at their last successful prune, stored in the workspace metadata.
+ * <p>
+ * A fingerprint covers the refs, the checked out commits and indexes of all worktrees, the files of the LFS store
+ * and whether the repositories share their LFS objects.
+ * If none of them changed, a prune would delete nothing, so the repository is skipped. Objects that are only retained
+ * because they are recent become prunable without any change, so a repository is pruned again after {@link #MAX_AGE_DAYS}.
+ */
+class PruneState {
+
+	private static final ICommonLogger logger = LoggerFactory.getLogger(PruneState.class.getSimpleName(), AutoLfsPruneActivator.PLUGIN_ID, AutoLfsPruneActivator.getDefault());
+
+	private static final String FILE_NAME = "lfs-prune-state.json";
+
+	/** Days after which an unchanged repository is pruned anyway */
+	private static final int MAX_AGE_DAYS = 7;
+
+	/** State of one repository */
+	private static class Entry {
+		String fingerprint;
+		long prunedAt;
+	}
+
+	/** Entries by the path of the git directory that holds the LFS objects */
+	private Map<String, Entry> repositories = new TreeMap<>();
+
+	/**
+	 * Loads the state of the current workspace.
+	 *
+	 * @return the stored state, an empty state if there is none or it cannot be read
+	 */
+	static PruneState load() {
+		try {
+			PruneState state = JsonUtil.fromJson(PruneState.class, getFile());
+			if (state != null && state.repositories != null) {
+				return state;
+			}
+		} catch (IOException e) {
+			logger.warn("Could not read git lfs prune state: " + e.getMessage());
+		}
+		return new PruneState();
+	}
+
+	/**
+	 * Stores the state in the workspace metadata.
+	 */
+	synchronized void save() {
+		try {
+			JsonUtil.toJson(this, getFile());
+		} catch (IOException e) {
+			logger.warn("Could not save git lfs prune state: " + e.getMessage());
+		}
+	}
+
+	private static Path getFile() {
+		return WorkspaceSupport.getPluginStateLocation(AutoLfsPruneActivator.PLUGIN_ID).resolve(FILE_NAME);
+	}
+
+	/**
+	 * @return true if the repository was pruned recently and did not change since
+	 */
+	synchronized boolean isUnchanged(File commonDirectory, String fingerprint) {
+		Entry entry = repositories.get(commonDirectory.getPath());
+		return entry != null
+				&& entry.fingerprint.equals(fingerprint)
+				&& System.currentTimeMillis() - entry.prunedAt < TimeUnit.DAYS.toMillis(MAX_AGE_DAYS);
+	}
+
+	/**
+	 * Remembers the state of a repository after a successful prune.
+	 */
+	synchronized void record(File commonDirectory, String fingerprint) {
+		Entry entry = new Entry();
+		entry.fingerprint = fingerprint;
+		entry.prunedAt = System.currentTimeMillis();
+		repositories.put(commonDirectory.getPath(), entry);
+	}
+
+	/**
+	 * Computes the fingerprint of a repository. Only metadata is read, no git or LFS object.
+	 *
+	 * @param commonDirectory git directory of the repository that holds the objects, shared by its worktrees
+	 */
+	static String fingerprint(File commonDirectory) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		try (Repository repository = new FileRepositoryBuilder().setGitDir(commonDirectory).setMustExist(true).build()) {
+			List<Ref> refs = new ArrayList<>(repository.getRefDatabase().getRefs());
+			refs.sort(Comparator.comparing(Ref::getName));
+			for (Ref ref : refs) {
+				ObjectId id = ref.getObjectId();
+				update(digest, ref.getName() + " " + (id != null ? id.name() : ""));
+			}
+
+			addCheckout(digest, commonDirectory);
+			File[] worktrees = new File(commonDirectory, "worktrees").listFiles(File::isDirectory);
+			if (worktrees != null) {
+				for (File worktree : worktrees) {
+					update(digest, worktree.getName());
+					addCheckout(digest, worktree);
+				}
+			}
+
+			Path lfsObjects = LfsUtil.getObjectsDirectory(repository).toPath();
+			long files = 0;
+			long bytes = 0;
+			if (Files.isDirectory(lfsObjects)) {
+				try (Stream<Path> walk = Files.walk(lfsObjects)) {
+					for (Path file : (Iterable<Path>) walk.filter(Files::isRegularFile)::iterator) {
+						files++;
+						bytes += Files.size(file);
+					}
+				}
+			}
+			update(digest, "lfs " + files + " " + bytes);
+			// Enabling the shared store must link the objects of unchanged repositories
+			update(digest, "shared " + SharedLfsStore.isEnabled());
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Adds the HEAD and the index of the main working tree or of a worktree.
+	 */
+	private static void addCheckout(MessageDigest digest, File gitDir) throws IOException {
+		File head = new File(gitDir, Constants.HEAD);
+		if (head.isFile()) {
+			update(digest, Files.readString(head.toPath()).trim());
+		}
+		File index = new File(gitDir, "index");
+		update(digest, "index " + index.length() + " " + index.lastModified());
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) '\n');
+	}
+}
@@ -1,6 +1,7 @@
 package net.sf.ecl1.git;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.core.runtime.jobs.Job;
@@ -21,12 +22,35 @@ public class Activator extends AbstractUIPlugin {
 	
 	private Job gitBatchPullJob;
 	
-	private List<Job> pullJobs = new ArrayList<>();
+	private List<Job> pullJobs = Collections.synchronizedList(new ArrayList<>());
+	
+	private IdlePrefetchService prefetchService;
 	
 	public void setGitBatchPullJob(Job job) {
 		gitBatchPullJob = job;
 	}
 	
+	/**
+	 * @return true if a git batch pull was started and has not finished yet
+	 */
+	public boolean isGitBatchPullRunning() {
+		Job job = gitBatchPullJob;
+		return job != null && job.getState() != Job.NONE;
+	}
+	
+	void setPrefetchService(IdlePrefetchService service) {
+		prefetchService = service;
+	}
+	
+	/**
+	 * Cancels a running background fetch and waits until it has finished.
+	 */
+	void cancelPrefetch() {
+		if (prefetchService != null) {
+			prefetchService.cancelPrefetch();
+		}
+	}
+	
 	public void appendPullJob(Job job) {
 		pullJobs.add(job);
 	}
@@ -51,8 +75,16 @@ public class Activator extends AbstractUIPlugin {
 	 * @see org.eclipse.ui.plugin.AbstractUIPlugin#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(BundleContext context) throws Exception {
+		//background fetch
+		if ( prefetchService != null ) {
+			prefetchService.stop();
+		}
 		//inner jobs
-		for (Job job: pullJobs) {
+		List<Job> jobs;
+		synchronized (pullJobs) {
+			jobs = new ArrayList<>(pullJobs);
+		}
+		for (Job job: jobs) {
 			if ( job != null ) {
 				job.cancel();
 				job.join();
@@ -0,0 +1,107 @@
+package net.sf.ecl1.git;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceDescription;
+import org.eclipse.core.runtime.CoreException;
+
+import net.sf.ecl1.utilities.general.WorkspaceSupport;
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
+
+/**
+ * Switches auto-building off while a git batch pull runs.
+ * <p>
+ * The auto-building setting is stored in the workspace metadata. So that it is not lost if Eclipse is killed
+ * during the batch pull, a marker file in the plugin state remembers that ecl1 switched it off, and the next start
+ * switches it on again. Auto-building is only switched on if it is still off, so that a change by the user during
+ * the batch pull is kept.
+ */
+class AutoBuildSuspension {
+
+	private static final ICommonLogger logger = LoggerFactory.getLogger(AutoBuildSuspension.class.getSimpleName(), Activator.PLUGIN_ID, Activator.getDefault());
+
+	private static final String MARKER_FILE_NAME = "auto-build-suspended";
+
+	private AutoBuildSuspension() {
+		// static helper
+	}
+
+	/**
+	 * Switches auto-building off, if it is on.
+	 *
+	 * @return true if auto-building was switched off and must be resumed by {@link #resume(IWorkspace)}
+	 */
+	static synchronized boolean suspend(IWorkspace workspace) {
+		if (!workspace.isAutoBuilding()) {
+			return false;
+		}
+		Path marker = getMarkerFile();
+		try {
+			Files.createDirectories(marker.getParent());
+			Files.writeString(marker, "Auto-building was switched off by the ecl1 git batch pull");
+		} catch (IOException e) {
+			// Without marker, a crash would leave auto-building off for good
+			logger.warn("Auto-building stays on during the git batch pull, the marker could not be written: " + e.getMessage());
+			return false;
+		}
+		if (!setAutoBuilding(workspace, false)) {
+			deleteMarker(marker);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Switches auto-building on again, unless the user switched it on in the meantime.
+	 */
+	static synchronized void resume(IWorkspace workspace) {
+		Path marker = getMarkerFile();
+		if (!Files.exists(marker)) {
+			return;
+		}
+		if (workspace.isAutoBuilding() || setAutoBuilding(workspace, true)) {
+			deleteMarker(marker);
+		}
+	}
+
+	/**
+	 * Switches auto-building on if a git batch pull that switched it off did not finish, e.g. because Eclipse was killed.
+	 */
+	static void resumeAfterInterruptedPull(IWorkspace workspace) {
+		if (Files.exists(getMarkerFile())) {
+			logger.info("Switching auto-building on again, it was switched off by an interrupted git batch pull");
+			resume(workspace);
+		}
+	}
+
+	/**
+	 * @return true if the setting was changed
+	 */
+	private static boolean setAutoBuilding(IWorkspace workspace, boolean autoBuilding) {
+		IWorkspaceDescription description = workspace.getDescription();
+		description.setAutoBuilding(autoBuilding);
+		try {
+			workspace.setDescription(description);
+			return true;
+		} catch (CoreException e) {
+			logger.warn("Could not switch auto-building " + (autoBuilding ? "on" : "off") + ": " + e.getMessage());
+			return false;
+		}
+	}
+
+	private static Path getMarkerFile() {
+		return WorkspaceSupport.getPluginStateLocation(Activator.PLUGIN_ID).resolve(MARKER_FILE_NAME);
+	}
+
+	private static void deleteMarker(Path marker) {
+		try {
+			Files.deleteIfExists(marker);
+		} catch (IOException e) {
+			logger.warn("Could not delete " + marker + ": " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package net.sf.ecl1.git;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
+
+/**
+ * Refreshes the resources a pull changed, so that Eclipse does not have to discover
+ * the changes by refreshing the whole project.
+ * <p>
+ * Modified files are refreshed alone. Added and deleted files are refreshed through
+ * their parent folder, new folders through their nearest existing ancestor.
+ */
+class ChangedResourcesRefresh {
+
+	private static final ICommonLogger logger = LoggerFactory.getLogger(ChangedResourcesRefresh.class.getSimpleName(), Activator.PLUGIN_ID, Activator.getDefault());
+
+	/** With more changes, a refresh of the whole project is cheaper than refreshing every resource */
+	private static final int MAX_TARGETED_REFRESHES = 2000;
+
+	private ChangedResourcesRefresh() {
+		// static helper
+	}
+
+	/**
+	 * Refreshes the changed resources of a project.
+	 *
+	 * @param project the pulled project, its location is the working tree of the repository
+	 * @param changes files changed by the pull, null to refresh the whole project
+	 */
+	static void refresh(IProject project, List<DiffEntry> changes, IProgressMonitor monitor) throws CoreException {
+		if (changes != null && changes.isEmpty()) {
+			return;
+		}
+		Map<IResource, Integer> refreshes = changes != null ? collectRefreshes(project, changes) : null;
+		if (refreshes == null || refreshes.size() > MAX_TARGETED_REFRESHES) {
+			logger.info("Refreshing project " + project.getName());
+			project.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+			return;
+		}
+
+		logger.info("Refreshing " + refreshes.size() + " changed resources of " + project.getName());
+		SubMonitor subMonitor = SubMonitor.convert(monitor, refreshes.size());
+		for (Map.Entry<IResource, Integer> refresh : refreshes.entrySet()) {
+			refresh.getKey().refreshLocal(refresh.getValue(), subMonitor.split(1));
+		}
+	}
+
+	/**
+	 * Returns the resources to refresh with their refresh depth.
+	 */
+	private static Map<IResource, Integer> collectRefreshes(IProject project, List<DiffEntry> changes) {
+		Map<IResource, Integer> refreshes = new LinkedHashMap<>();
+		for (DiffEntry change : changes) {
+			if (change.getChangeType() == ChangeType.MODIFY) {
+				addRefresh(refreshes, project.getFile(new Path(change.getNewPath())), IResource.DEPTH_ZERO);
+				continue;
+			}
+			if (change.getChangeType() != ChangeType.ADD) {
+				addContainerRefresh(refreshes, project.getFile(new Path(change.getOldPath())).getParent());
+			}
+			if (change.getChangeType() != ChangeType.DELETE) {
+				addContainerRefresh(refreshes, project.getFile(new Path(change.getNewPath())).getParent());
+			}
+		}
+		return refreshes;
+	}
+
+	/**
+	 * Adds the refresh of a folder whose children changed. A folder that is not known to the workspace
+	 * is new, so its nearest known ancestor is refreshed completely.
+	 */
+	private static void addContainerRefresh(Map<IResource, Integer> refreshes, IContainer container) {
+		if (container.exists()) {
+			addRefresh(refreshes, container, IResource.DEPTH_ONE);
+			return;
+		}
+		while (!container.exists() && container.getType() != IResource.PROJECT) {
+			container = container.getParent();
+		}
+		addRefresh(refreshes, container, IResource.DEPTH_INFINITE);
+	}
+
+	private static void addRefresh(Map<IResource, Integer> refreshes, IResource resource, int depth) {
+		refreshes.merge(resource, depth, Math::max);
+	}
+}
@@ -0,0 +1,426 @@
+package net.sf.ecl1.git;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.core.runtime.jobs.JobGroup;
+import org.eclipse.jgit.transport.SshSessionFactory;
+
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
+import net.sf.ecl1.utilities.preferences.PreferenceWrapper;
+
+/**
+ * Runs the pull jobs of one git batch pull and collects their results.
+ * <p>
+ * By default one job per project fetches and integrates. In pipelined mode, the jobs
+ * only fetch, so the network parallelism can be high. Each project is then merged or
+ * rebased by an integration job as soon as its fetch finished. Only a few integration
+ * jobs run in parallel, because the checkouts of large projects are bound by the local disk.
+ */
+public class GitBatchPull {
+
+	private static final ICommonLogger logger = LoggerFactory.getLogger(GitBatchPull.class.getSimpleName(), Activator.PLUGIN_ID, Activator.getDefault());
+
+	private final boolean pipelined = PreferenceWrapper.isGitPullPipelined();
+
+	private final boolean conflictPrecheck = PreferenceWrapper.isGitPullConflictPrecheck();
+
+	private final int maxParallelPulls = PreferenceWrapper.getGitPullMaxParallelism();
+
+	private final PullConcurrencyLimiter limiter = new PullConcurrencyLimiter("Git Batch Pull",
+			PreferenceWrapper.getGitPullMinParallelism(), maxParallelPulls);
+
+	/** Family of the integration jobs of this batch */
+	private final Object integrationFamily = new Object();
+
+	private final JobGroup integrationJobGroup = new JobGroup("ecl1: Git Batch Pull Integration",
+			PreferenceWrapper.getGitPullMaxParallelIntegrations(), 0);
+
+	private final MultiStatus integrationResult = new MultiStatus(Activator.PLUGIN_ID, 0, "Integration of fetched changes");
+
+	/** SSH sessions shared by all pulls of this batch, null if no SSH session factory is available */
+	private final SshSessionPool sshSessionPool = SshSessionFactory.getInstance() != null
+			? new SshSessionPool(SshSessionFactory.getInstance())
+			: null;
+
+	/** Durations of past pulls, used to start the longest pulls first */
+	private final PullHistory history = PullHistory.load();
+
+	/** Measurements of this batch */
+	private final PullReport report = new PullReport(pipelined);
+
+	/** Projects whose files were changed by a pull */
+	private final Set<IProject> changedProjects = ConcurrentHashMap.newKeySet();
+
+	/** Projects that were skipped because their upstream has not changed */
+	private final List<String> upToDateProjects = Collections.synchronizedList(new ArrayList<>());
+
+	/**
+	 * Pulls the projects and waits until all pulls have finished.
+	 *
+	 * @param projects projects in the order to pull them if there is no pull history yet
+	 * @param batchMonitor monitor of the whole batch
+	 * @return the status of all pulls
+	 */
+	MultiStatus run(List<IProject> projects, IProgressMonitor batchMonitor) {
+		MultiStatus multiStatus = new MultiStatus(Activator.PLUGIN_ID, 0,
+				"Problems occurred during \"Batch Git Pull Command\"");
+
+		batchMonitor.beginTask("Batch Git Pull", projects.size());
+
+		if (projects.isEmpty()) {
+			batchMonitor.done();
+			return multiStatus;
+		}
+
+		if (batchMonitor.isCanceled()) {
+			multiStatus.add(Status.CANCEL_STATUS);
+			batchMonitor.done();
+			return multiStatus;
+		}
+
+		if (Activator.getDefault() != null) {
+			// A background fetch would compete with the batch pull for the same repositories
+			Activator.getDefault().cancelPrefetch();
+		}
+
+		long batchStart = System.currentTimeMillis();
+
+		// Start the longest pulls first, so that no slow pull starts last and stretches the batch
+		List<IProject> orderedProjects = new ArrayList<>(projects);
+		orderedProjects.sort(history.longestExpectedFirst());
+
+		Collection<List<IProject>> repositories = groupByRepository(orderedProjects);
+		JobGroup pullJobGroup = createPullJobGroup(repositories.size());
+
+		for (List<IProject> repositoryProjects : repositories) {
+			Job pullJob = createPullJob(repositoryProjects);
+			pullJob.setJobGroup(pullJobGroup);
+			if (Activator.getDefault() != null) {
+				Activator.getDefault().appendPullJob(pullJob);
+			}
+			pullJob.schedule();
+		}
+
+		try {
+			pullJobGroup.join(0, batchMonitor);
+			Job.getJobManager().join(integrationFamily, batchMonitor);
+		} catch (OperationCanceledException e) {
+			cancel(pullJobGroup);
+			multiStatus.add(Status.CANCEL_STATUS);
+		} catch (InterruptedException e) {
+			cancel(pullJobGroup);
+
+			multiStatus.add(new Status(IStatus.CANCEL, Activator.PLUGIN_ID,
+					"Interrupted while running git batch pull jobs.", e));
+
+			Thread.currentThread().interrupt();
+		} finally {
+			if (sshSessionPool != null) {
+				sshSessionPool.close();
+			}
+			history.save();
+			report.setParallelism(limiter.getMaxLimit(), limiter.getLimit());
+			if (sshSessionPool != null) {
+				report.setSshSessions(sshSessionPool.getHits(), sshSessionPool.getMisses());
+			}
+			report.save(System.currentTimeMillis() - batchStart);
+			batchMonitor.done();
+			logger.info("Git batch pull reached a parallelism of " + limiter.getMaxLimit() + " and ended with " + limiter.getLimit());
+		}
+
+		MultiStatus pullResult = pullJobGroup.getResult();
+
+		if (pullResult != null) {
+			multiStatus.merge(pullResult);
+		}
+		synchronized (integrationResult) {
+			multiStatus.merge(integrationResult);
+		}
+		addUpToDateSummary(multiStatus);
+		addSshSessionSummary(multiStatus);
+
+		return multiStatus;
+	}
+
+	/**
+	 * @return the projects whose files were changed by the last {@link #run(List, IProgressMonitor)}
+	 */
+	Set<IProject> getChangedProjects() {
+		return new HashSet<>(changedProjects);
+	}
+
+	/**
+	 * Lists the projects that were skipped, because they were up to date.
+	 */
+	private void addUpToDateSummary(MultiStatus multiStatus) {
+		List<String> names;
+		synchronized (upToDateProjects) {
+			names = new ArrayList<>(upToDateProjects);
+		}
+		if (names.isEmpty()) {
+			return;
+		}
+		Collections.sort(names);
+		logger.info(names.size() + " projects are up to date (skipped): " + names);
+
+		MultiStatus upToDate = new MultiStatus(Activator.PLUGIN_ID, 0,
+				names.size() + " projects are up to date (skipped)");
+		for (String name : names) {
+			upToDate.add(new Status(IStatus.INFO, Activator.PLUGIN_ID, name + ": up to date (skipped)"));
+		}
+		multiStatus.add(upToDate);
+	}
+
+	/**
+	 * Reports how many SSH sessions were reused.
+	 */
+	private void addSshSessionSummary(MultiStatus multiStatus) {
+		if (sshSessionPool == null || sshSessionPool.getHits() + sshSessionPool.getMisses() == 0) {
+			return;
+		}
+		multiStatus.add(new Status(IStatus.INFO, Activator.PLUGIN_ID, "SSH session pool: "
+				+ sshSessionPool.getHits() + " hits, " + sshSessionPool.getMisses() + " misses"));
+	}
+
+	/**
+	 * Creates the throttled pull job group.
+	 * The group only caps the number of threads, the actual parallelism is adapted by the {@link PullConcurrencyLimiter}.
+	 */
+	private JobGroup createPullJobGroup(int jobCount) {
+		return new JobGroup(
+				"ecl1: Git Batch Pull",
+				maxParallelPulls,
+				jobCount) {
+
+			@Override
+			protected boolean shouldCancel(
+					IStatus lastCompletedJobResult,
+					int numberOfFailedJobs,
+					int numberOfCanceledJobs) {
+
+				// A failed pull must not cancel the remaining pulls.
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Groups the projects by the repository that holds their objects. Worktrees of the same repository
+	 * form one group, whose main working tree comes first. The order of the groups follows the first
+	 * project of each group.
+	 */
+	public static Collection<List<IProject>> groupByRepository(List<IProject> projects) {
+		Map<Object, List<IProject>> repositories = new LinkedHashMap<>();
+		for (IProject project : projects) {
+			File commonDirectory = RepositoryPull.findCommonDirectory(project.getLocation().toFile());
+			// Projects without a git directory are pulled alone
+			Object key = commonDirectory != null ? commonDirectory : project;
+			repositories.computeIfAbsent(key, k -> new ArrayList<>()).add(project);
+		}
+		for (List<IProject> repositoryProjects : repositories.values()) {
+			repositoryProjects.sort(Comparator.comparing(GitBatchPull::isWorktree));
+		}
+		return repositories.values();
+	}
+
+	private static boolean isWorktree(IProject project) {
+		return project.getLocation().append(".git").toFile().isFile();
+	}
+
+	/**
+	 * Creates a pull job for the projects of one repository, usually a single project.
+	 * The job waits for a free slot of the limiter before it starts pulling. Slots are handed out in the order the jobs were created.
+	 * Worktrees of the same repository are pulled one after another, so that only the first
+	 * fetches from the remote and the others integrate what it fetched.
+	 * In pipelined mode, the job only fetches and schedules the integrations afterwards.
+	 */
+	private Job createPullJob(List<IProject> repositoryProjects) {
+		String name = repositoryProjects.get(0).getName();
+		if (repositoryProjects.size() > 1) {
+			name += " and " + (repositoryProjects.size() - 1) + " worktrees";
+		}
+		String jobName = name;
+		// Taken in the order of scheduling, so that the longest pulls start first
+		int ticket = limiter.takeTicket();
+
+		Job pullJob = new WorkspaceJob(
+				"ecl1: Executing \"git " + (pipelined ? "fetch" : "pull") + "\" for " + jobName) {
+
+			@Override
+			public IStatus runInWorkspace(IProgressMonitor monitor) {
+				monitor.beginTask("Waiting to pull " + jobName, IProgressMonitor.UNKNOWN);
+				if (!limiter.acquire(ticket, monitor::isCanceled)) {
+					monitor.done();
+					return Status.CANCEL_STATUS;
+				}
+
+				long start = System.currentTimeMillis();
+				boolean networkFailure = false;
+				// Remotes of the shared repository that were fetched for a previous worktree
+				Set<String> fetchedRemotes = new HashSet<>();
+				MultiStatus result = new MultiStatus(Activator.PLUGIN_ID, 0, "Pull of " + jobName);
+				try {
+					for (IProject project : repositoryProjects) {
+						if (monitor.isCanceled()) {
+							result.add(Status.CANCEL_STATUS);
+							break;
+						}
+						IStatus status = pullProject(project, fetchedRemotes, monitor);
+						networkFailure |= RepositoryPull.isNetworkFailure(status);
+						result.add(status);
+					}
+					return result.getChildren().length == 1 ? result.getChildren()[0] : result;
+				} finally {
+					limiter.release(System.currentTimeMillis() - start, networkFailure);
+					monitor.done();
+				}
+			}
+		};
+		pullJob.addJobChangeListener(new JobChangeAdapter() {
+			@Override
+			public void done(IJobChangeEvent event) {
+				// A job that was canceled before it ran never acquires its slot
+				limiter.withdraw(ticket);
+			}
+		});
+		return pullJob;
+	}
+
+	/**
+	 * Pulls one project. In pipelined mode, the project is only fetched and its integration is scheduled.
+	 */
+	private IStatus pullProject(IProject project, Set<String> fetchedRemotes, IProgressMonitor monitor) {
+		String name = project.getName();
+		File projectRoot = project.getLocation().toFile();
+		if (isWorktree(project)) {
+			logger.info("Processing " + name + " (worktree) with location "
+							+ projectRoot.getAbsolutePath());
+		} else {
+			logger.info("Processing " + name + " with location "
+							+ projectRoot.getAbsolutePath());
+		}
+		monitor.setTaskName((pipelined ? "Fetching " : "Pulling ") + name);
+
+		RepositoryPull pull = new RepositoryPull(name, projectRoot, sshSessionPool);
+		pull.setConflictPrecheck(conflictPrecheck);
+		long start = System.currentTimeMillis();
+		IStatus status = Status.CANCEL_STATUS;
+		try {
+			status = pipelined ? pull.fetch(monitor, fetchedRemotes) : pull.pull(monitor, fetchedRemotes);
+			if (pull.isUpToDate()) {
+				upToDateProjects.add(name);
+			}
+			if (!pipelined) {
+				refreshChangedResources(project, pull, monitor);
+			}
+			return status;
+		} finally {
+			long duration = System.currentTimeMillis() - start;
+			if (status.getSeverity() != IStatus.CANCEL && !RepositoryPull.isNetworkFailure(status)) {
+				history.record(name, duration, pull.getTransferredBytes());
+			}
+			report.recordPull(pull, status, duration);
+			if (pipelined && status.isOK() && pull.needsIntegration() && !monitor.isCanceled()) {
+				scheduleIntegrationJob(project, pull);
+			}
+			logger.info("Finished Processing " + name);
+		}
+	}
+
+	/**
+	 * Schedules the job that merges or rebases a fetched project.
+	 */
+	private void scheduleIntegrationJob(IProject project, RepositoryPull pull) {
+		String name = pull.getName();
+
+		Job integrationJob = new WorkspaceJob("ecl1: Integrating fetched changes into " + name) {
+
+			@Override
+			public IStatus runInWorkspace(IProgressMonitor monitor) {
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				monitor.beginTask("Integrating " + name, IProgressMonitor.UNKNOWN);
+				long start = System.currentTimeMillis();
+				try {
+					IStatus status = pull.integrate(monitor);
+					report.recordIntegration(pull, status, System.currentTimeMillis() - start);
+					refreshChangedResources(project, pull, monitor);
+					if (!status.isOK()) {
+						synchronized (integrationResult) {
+							integrationResult.add(status);
+						}
+					}
+					return status;
+				} finally {
+					monitor.done();
+					logger.info("Finished integrating " + name);
+				}
+			}
+
+			@Override
+			public boolean belongsTo(Object family) {
+				return integrationFamily == family;
+			}
+		};
+		integrationJob.setJobGroup(integrationJobGroup);
+		if (Activator.getDefault() != null) {
+			Activator.getDefault().appendPullJob(integrationJob);
+		}
+		integrationJob.schedule();
+	}
+
+	/**
+	 * Makes Eclipse aware of the files a pull changed. Standalone, there is no workspace to refresh.
+	 */
+	private void refreshChangedResources(IProject project, RepositoryPull pull, IProgressMonitor monitor) {
+		if (pull.getChanges() == null || !pull.getChanges().isEmpty()) {
+			changedProjects.add(project);
+		}
+		if (!net.sf.ecl1.utilities.Activator.isRunningInEclipse()) {
+			return;
+		}
+		try {
+			ChangedResourcesRefresh.refresh(project, pull.getChanges(), monitor);
+		} catch (CoreException e) {
+			logger.warn("Could not refresh " + project.getName() + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Cancels all pull and integration jobs and waits until they have finished.
+	 */
+	private void cancel(JobGroup pullJobGroup) {
+		pullJobGroup.cancel();
+		Job.getJobManager().cancel(integrationFamily);
+		try {
+			pullJobGroup.join(0, null);
+			Job.getJobManager().join(integrationFamily, null);
+		} catch (InterruptedException e) {
+			logger.error("Interrupted while waiting for git pull jobs to finish");
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -1,56 +1,51 @@
 package net.sf.ecl1.git;
 
-import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.resources.IBuildConfiguration;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.core.runtime.jobs.JobGroup;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.dialogs.IDialogConstants;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.PullResult;
-import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.api.errors.JGitInternalException;
-import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.handlers.HandlerUtil;
 import org.eclipse.core.runtime.MultiStatus;
-import org.eclipse.core.runtime.NullProgressMonitor;
-import org.eclipse.core.runtime.OperationCanceledException;
-import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
-import net.sf.ecl1.utilities.general.GitUtil;
 import net.sf.ecl1.utilities.logging.ICommonLogger;
 import net.sf.ecl1.utilities.logging.LoggerFactory;
 import net.sf.ecl1.utilities.preferences.PreferenceWrapper;
-import net.sf.ecl1.utilities.general.SwtUtil;
 import net.sf.ecl1.utilities.standalone.workspace.WorkspaceFactory;
 
 /**
  * Executes a pull command on all open projects using Git as SCM
+ * 
+ * The standalone app uses {@link net.sf.ecl1.git.standalone.HeadlessGitBatchPull} instead, which reports its summary
+ * as the last progress line.
  *  
  * @author keunecke
  */
 public class GitBatchPullHandler extends AbstractHandler {
 		
     private static final ICommonLogger logger = LoggerFactory.getLogger(GitBatchPullHandler.class.getSimpleName(), Activator.PLUGIN_ID, Activator.getDefault());
-    private static final int MAX_PARALLEL_PULLS = 10;
     private static final String WEBAPPS = "webapps";
     /**
-     * Pull large projects first.
+     * Pull large projects first, if there is no pull history for them yet.
      * List order defines pull order.
     */
     private static final List<String> PRIORITY_PROJECTS = List.of(WEBAPPS, "cs.sys.dbschema.hisinone");
@@ -58,6 +53,10 @@ public class GitBatchPullHandler extends AbstractHandler {
     private enum TomcatPullDecision {
     	PULL, SKIP, CANCEL
     }
+    /** Result of the tomcat detection */
+    public enum TomcatState {
+    	RUNNING, NOT_RUNNING, UNKNOWN
+    }
     
 	@Override
 	public Object execute(ExecutionEvent event) {
@@ -70,26 +69,25 @@ public class GitBatchPullHandler extends AbstractHandler {
 		}
 		boolean skipWebapps = decision == TomcatPullDecision.SKIP;
 
-		// standalone
-		if(!net.sf.ecl1.utilities.Activator.isRunningInEclipse()){
-			GitUtil.setupStandaloneSsh();
-			IStatus multiStatus = schedulePullJobs(new NullProgressMonitor(), skipWebapps);
-			if (PreferenceWrapper.isDisplaySummaryOfGitPull()) {
-				Display display = new Display();
-				SwtUtil.bringShellToForeground(display);
-				GitBatchPullSummaryErrorDialog errorDialog = new GitBatchPullSummaryErrorDialog(display.getActiveShell(), multiStatus);
-				Image icon = new Image(null, GitBatchPullHandler.class.getResourceAsStream("/ecl1_icon.png"));
-				GitBatchPullSummaryErrorDialog.setDefaultImage(icon);
-				errorDialog.open();
-			}
-			return null;
-		}
-
 		Job job = new WorkspaceJob("ecl1: Executing \"git pull\" for all git versioned projects in the workspace.") {
 			@Override
 			public IStatus runInWorkspace(IProgressMonitor monitor) {
-				IStatus multiStatus = schedulePullJobs(monitor, skipWebapps);
-				return displayResultStatus(multiStatus);
+				IWorkspace workspace = WorkspaceFactory.getWorkspace();
+				// Build once after the batch instead of once per pulled project while other pulls are still writing
+				boolean suspended = AutoBuildSuspension.suspend(workspace);
+				try {
+					GitBatchPull batchPull = new GitBatchPull();
+					IStatus multiStatus = schedulePullJobs(batchPull, monitor, skipWebapps);
+					// If the user switched auto-building on during the batch, the auto-build takes care of the changes
+					if (suspended && !workspace.isAutoBuilding() && !monitor.isCanceled()) {
+						buildChangedProjects(workspace, batchPull.getChangedProjects(), monitor);
+					}
+					return displayResultStatus(multiStatus);
+				} finally {
+					if (suspended) {
+						AutoBuildSuspension.resume(workspace);
+					}
+				}
 			}
 		};
 		
@@ -106,18 +104,7 @@ public class GitBatchPullHandler extends AbstractHandler {
 			return TomcatPullDecision.PULL;
 		}
 		
-		// standalone
-		if(!net.sf.ecl1.utilities.Activator.isRunningInEclipse()) {
-			Display display = new Display();
-			try {
-				return openTomcatDialog(display.getActiveShell());
-			} finally {
-				display.dispose();
-			}
-			
-		} else {
-			return openTomcatDialog(HandlerUtil.getActiveShell(event));
-		}
+		return openTomcatDialog(HandlerUtil.getActiveShell(event));
 	}
 	
 	private TomcatPullDecision openTomcatDialog(Shell parentShell) {
@@ -133,7 +120,19 @@ public class GitBatchPullHandler extends AbstractHandler {
 		};
 	}
 
-	private boolean isTomcatRunning() {
+	/**
+	 * @return true if a tomcat is running or if that cannot be determined
+	 */
+	public static boolean isTomcatRunning() {
+		return getTomcatState() != TomcatState.NOT_RUNNING;
+	}
+
+	/**
+	 * Looks for a java process with a catalina.base system property.
+	 * 
+	 * @return whether a tomcat is running, UNKNOWN if the operating system is not supported or the check failed
+	 */
+	public static TomcatState getTomcatState() {
 		String osName = System.getProperty("os.name").toLowerCase();
 		ProcessBuilder processBuilder;
 		int notRunningExitCode;
@@ -157,31 +156,31 @@ public class GitBatchPullHandler extends AbstractHandler {
 		} else if (osName.startsWith("linux")) {
 			processBuilder = new ProcessBuilder(
 					"pgrep",
-					"f",
+					"-f",
 					"--",
 					"-D[c]atalina\\.base=");
 			notRunningExitCode = 1;
 		} else {
 			logger.warn("Tomcat detection not supported on "+ osName);
-			return true;
+			return TomcatState.UNKNOWN;
 		}
 		
 		try {
 			int exitCode = processBuilder.start().waitFor();
 			if (exitCode == 0) {
-				return true;
+				return TomcatState.RUNNING;
 			}
 			if (exitCode == notRunningExitCode) {
-				return false;
+				return TomcatState.NOT_RUNNING;
 			}
 			logger.warn("Could not check wheter Tomcat is running. Exit code: " + exitCode);
-			return true;
+			return TomcatState.UNKNOWN;
 		} catch (IOException e) {
 			logger.warn("Could not check wheter Tomcat is running.", e);
-			return true;
+			return TomcatState.UNKNOWN;
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
-			return true;
+			return TomcatState.UNKNOWN;
 		}
 	}
 	
@@ -191,7 +190,7 @@ public class GitBatchPullHandler extends AbstractHandler {
 	 * @param project
 	 * @return configured priority or the lowest priority for normal projects
 	 */
-	private int getPullOrder(IProject project) {
+	private static int getPullOrder(IProject project) {
 		int prioIndex = PRIORITY_PROJECTS.indexOf(project.getName());
 		if(prioIndex >= 0) {
 			return prioIndex;
@@ -203,7 +202,7 @@ public class GitBatchPullHandler extends AbstractHandler {
 	/**
 	 * Returns accessible projects in pull order.
 	 */
-	private List<IProject> getProjectsForPull() {
+	public static List<IProject> getProjectsForPull() {
 		List<IProject> projects = new ArrayList<>();
 		for (IProject project : WorkspaceFactory.getWorkspace().getRoot().getProjects()) {
 			if (project.isAccessible() && project.getLocation() != null) {
@@ -211,39 +210,14 @@ public class GitBatchPullHandler extends AbstractHandler {
 			}
 		}
 		// Pull priority projects first and sort remaining alphabetically
-		projects.sort(Comparator.comparingInt(this::getPullOrder).thenComparing(IProject::getName));
+		projects.sort(Comparator.comparingInt(GitBatchPullHandler::getPullOrder).thenComparing(IProject::getName));
 		return projects;
 	}
 	
 	/**
-	 * Creates the throttled pull job group.
-	 */
-	private JobGroup createPullJobGroup(int jobCount) {
-		return new JobGroup(
-				"ecl1: Git Batch Pull",
-				MAX_PARALLEL_PULLS,
-				jobCount) {
-
-			@Override
-			protected boolean shouldCancel(
-					IStatus lastCompletedJobResult,
-					int numberOfFailedJobs,
-					int numberOfCanceledJobs) {
-
-				// A failed pull must not cancel the remaining pulls.
-				return false;
-			}
-		};
-	}
-	
-	
-	/**
-	 * Schedules and collects all pull jobs.
+	 * Collects the projects and runs the batch pull on them.
 	 */
-	private MultiStatus schedulePullJobs(IProgressMonitor batchMonitor, boolean skipWebapps) {
-		MultiStatus multiStatus = new MultiStatus(Activator.PLUGIN_ID, 0,
-				"Problems occurred during \"Batch Git Pull Command\"");
-	
+	private MultiStatus schedulePullJobs(GitBatchPull batchPull, IProgressMonitor batchMonitor, boolean skipWebapps) {
 		List<IProject> projects = getProjectsForPull();
 		List<String> projectNames = new ArrayList<>();
 		
@@ -258,171 +232,37 @@ public class GitBatchPullHandler extends AbstractHandler {
 	
 		logger.info("Found " + projects.size() + " projects in Workspace: " + projectNames);
 	
-		batchMonitor.beginTask("Batch Git Pull", projects.size());
-	
-		if (projects.isEmpty()) {
-			batchMonitor.done();
-			return multiStatus;
-		}
-	
-		if (batchMonitor.isCanceled()) {
-			multiStatus.add(Status.CANCEL_STATUS);
-			batchMonitor.done();
-			return multiStatus;
-		}
-	
-		JobGroup pullJobGroup = createPullJobGroup(projects.size());
-	
-		for (IProject project : projects) {
-			Job pullJob = createPullJob(project);
-			pullJob.setJobGroup(pullJobGroup);	
-			Activator.getDefault().appendPullJob(pullJob);
-			pullJob.schedule();
-		}
-	
-		try {
-			pullJobGroup.join(0, batchMonitor);
-		} catch (OperationCanceledException e) {
-			pullJobGroup.cancel();
-			waitForPullJobs(pullJobGroup);
-			multiStatus.add(Status.CANCEL_STATUS);
-		} catch (InterruptedException e) {
-			pullJobGroup.cancel();
-			waitForPullJobs(pullJobGroup);
-	
-			multiStatus.add(new Status(IStatus.CANCEL, Activator.PLUGIN_ID,
-					"Interrupted while running git batch pull jobs.", e));
-	
-			Thread.currentThread().interrupt();
-		} finally {
-			batchMonitor.done();
-		}
-	
-		MultiStatus pullResult = pullJobGroup.getResult();
-	
-		if (pullResult != null) {
-			multiStatus.merge(pullResult);
-		}
-	
-		return multiStatus;
+		return batchPull.run(projects, batchMonitor);
 	}
 
-
 	/**
-	 * Creates a pull job for one project.
+	 * Builds the changed projects and the projects depending on them in one build, in dependency order.
 	 */
-	private Job createPullJob(IProject project) {
-		String name = project.getName();
-		File projectRoot = project.getLocation().toFile();
-	
-		boolean isWorktree = project.getLocation().append(".git").toFile().isFile();
-	
-		return new WorkspaceJob(
-				"ecl1: Executing \"git pull\" for " + name) {
-	
-			@Override
-			public IStatus runInWorkspace(IProgressMonitor monitor) {
-				if (isWorktree) {
-					logger.info("Processing " + name + " (worktree) with location "
-									+ projectRoot.getAbsolutePath());
-				} else {
-					logger.info("Processing " + name + " with location "
-									+ projectRoot.getAbsolutePath());
-				}
-	
-				monitor.beginTask("Pulling " + name, IProgressMonitor.UNKNOWN);
-	
-				try {
-					return gitPull(monitor, projectRoot, name);
-				} finally {
-					monitor.done();
-					logger.info("Finished Processing " + name);
+	private void buildChangedProjects(IWorkspace workspace, Set<IProject> changedProjects, IProgressMonitor monitor) {
+		if (changedProjects.isEmpty()) {
+			return;
+		}
+		Set<IProject> projects = new HashSet<>(changedProjects);
+		Deque<IProject> queue = new ArrayDeque<>(changedProjects);
+		while (!queue.isEmpty()) {
+			for (IProject referencing : queue.pop().getReferencingProjects()) {
+				if (referencing.isAccessible() && projects.add(referencing)) {
+					queue.add(referencing);
 				}
 			}
-		};
-	}
-
-	/**
-	 * Waits until all canceled pull jobs have finished.
-	 */
-	private void waitForPullJobs(JobGroup pullJobGroup) {
-		try {
-			pullJobGroup.join(0, null);
-		} catch (InterruptedException e) {
-			logger.error("Interrupted while waiting for git pull jobs to finish");
-			Thread.currentThread().interrupt();
-		}
-	}
-
-
-	/**
-	 * Pulls one Git repository.
-	 */
-	private IStatus gitPull(IProgressMonitor monitor,File projectRoot, String name) {
-
-		if (monitor.isCanceled()) {
-			return Status.CANCEL_STATUS;
 		}
 
-		try (Repository repository = new FileRepositoryBuilder()
-						.setWorkTree(projectRoot)
-						.readEnvironment()
-						.findGitDir(projectRoot)
-						.build();
-				Git git = new Git(repository)) {
-
-			PullResult pullResult = git.pull().call();
-			return parsePullResult(name, pullResult);
-
-		} catch (org.eclipse.jgit.errors.RepositoryNotFoundException e) {
-			logger.info(name + " is not managed via Git: " + e.getMessage());
-			return Status.OK_STATUS;
-		} catch (GitAPIException | JGitInternalException e) {
-			return new Status(IStatus.WARNING, Activator.PLUGIN_ID,
-					"Failed to pull " + name + ": " + e.getMessage() + ". Skipping and proceeding.", e);
-		} catch (IOException e) {
-			logger.info(name + " failed: " + e.getMessage());
-			return new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Failed to pull " + name + ": " + e.getMessage(), e);
-		}
-	}
-
-
-	/**
-	 * Creates the status for a pull result.
-	 */
-	private IStatus parsePullResult(
-			String projectName,
-			PullResult pullResult) {
-
-		if (pullResult.isSuccessful()) {
-			return Status.OK_STATUS;
-		}
-
-		MultiStatus result = new MultiStatus(Activator.PLUGIN_ID, 0, "Pull from " + projectName + " was not successful.");
-
-		boolean reasonFound = false;
-
-		if (pullResult.getMergeResult() != null
-				&& !pullResult.getMergeResult().getMergeStatus().isSuccessful()) {
-
-			result.add(new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Pull from " + projectName + " was not successful because the merge failed."));
-			reasonFound = true;
-		}
-
-		if (pullResult.getRebaseResult() != null
-				&& !pullResult.getRebaseResult()
-						.getStatus()
-						.isSuccessful()) {
-
-			result.add(new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Pull from " + projectName + " was not successful because the rebase failed."));
-			reasonFound = true;
-		}
-
-		if (!reasonFound) {
-			result.add(new Status(IStatus.WARNING, Activator.PLUGIN_ID," Pull from " + projectName + " was not successful."));
+		IProject[] orderedProjects = workspace.computeProjectOrder(projects.toArray(new IProject[0])).projects;
+		logger.info("Building " + orderedProjects.length + " projects changed by git batch pull");
+		try {
+			IBuildConfiguration[] buildConfigs = new IBuildConfiguration[orderedProjects.length];
+			for (int i = 0; i < orderedProjects.length; i++) {
+				buildConfigs[i] = orderedProjects[i].getActiveBuildConfig();
+			}
+			workspace.build(buildConfigs, IncrementalProjectBuilder.INCREMENTAL_BUILD, false, monitor);
+		} catch (CoreException e) {
+			logger.warn("Could not build projects changed by git batch pull: " + e.getMessage());
 		}
-
-		return result;
 	}
 	
 	/**
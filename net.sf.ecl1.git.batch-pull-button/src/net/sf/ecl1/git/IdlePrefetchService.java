@@ -0,0 +1,180 @@
+package net.sf.ecl1.git;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.ui.IStartup;
+import org.eclipse.ui.PlatformUI;
+
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
+import net.sf.ecl1.utilities.preferences.PreferenceWrapper;
+
+/**
+ * Fetches all git versioned projects in the background while the IDE is idle, so that a later
+ * batch pull only has to merge objects that were already downloaded.
+ * <p>
+ * The service checks once a minute if a background fetch is due. It must be enabled in the preferences,
+ * the last background fetch must be older than the configured interval, the user must not have used
+ * the IDE for a few minutes, and no batch pull or build may be running.
+ * The background fetch never touches working trees, it only updates the remote tracking branches
+ * and downloads the LFS objects that the next batch pull will check out.
+ */
+public class IdlePrefetchService implements IStartup {
+
+	private static final ICommonLogger logger = LoggerFactory.getLogger(IdlePrefetchService.class.getSimpleName(), Activator.PLUGIN_ID, Activator.getDefault());
+
+	private static final long CHECK_INTERVAL_MINUTES = 1;
+
+	/** The IDE is idle if the user did not type or click for this time */
+	private static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+	private static final int[] INPUT_EVENTS = { SWT.KeyDown, SWT.MouseDown, SWT.MouseWheel };
+
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "ecl1 git prefetch scheduler");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private volatile long lastInput = System.currentTimeMillis();
+
+	/** Start of the last background fetch, only used by the scheduler thread */
+	private long lastPrefetch;
+
+	private Job prefetchJob;
+
+	@Override
+	public void earlyStartup() {
+		if (!net.sf.ecl1.utilities.Activator.isRunningInEclipse()) {
+			return;
+		}
+		Activator.getDefault().setPrefetchService(this);
+		AutoBuildSuspension.resumeAfterInterruptedPull(ResourcesPlugin.getWorkspace());
+
+		Display display = PlatformUI.getWorkbench().getDisplay();
+		display.asyncExec(() -> {
+			Listener inputListener = event -> lastInput = System.currentTimeMillis();
+			for (int eventType : INPUT_EVENTS) {
+				display.addFilter(eventType, inputListener);
+			}
+		});
+
+		scheduler.scheduleWithFixedDelay(this::prefetchIfIdle, CHECK_INTERVAL_MINUTES, CHECK_INTERVAL_MINUTES, TimeUnit.MINUTES);
+	}
+
+	private void prefetchIfIdle() {
+		// An exception would stop all further executions of the scheduler
+		try {
+			if (!PreferenceWrapper.isGitPrefetchInBackground()) {
+				return;
+			}
+			long now = System.currentTimeMillis();
+			if (now - lastPrefetch < TimeUnit.MINUTES.toMillis(PreferenceWrapper.getGitPrefetchIntervalMinutes())
+					|| now - lastInput < IDLE_MILLIS
+					|| Activator.getDefault().isGitBatchPullRunning()
+					|| isBuilding()) {
+				return;
+			}
+			synchronized (this) {
+				if (prefetchJob != null && prefetchJob.getState() != Job.NONE) {
+					return;
+				}
+				lastPrefetch = now;
+				prefetchJob = new PrefetchJob();
+				prefetchJob.schedule();
+			}
+		} catch (RuntimeException e) {
+			logger.error2("Could not start background fetch", e);
+		}
+	}
+
+	private static boolean isBuilding() {
+		return Job.getJobManager().find(ResourcesPlugin.FAMILY_AUTO_BUILD).length > 0
+				|| Job.getJobManager().find(ResourcesPlugin.FAMILY_MANUAL_BUILD).length > 0;
+	}
+
+	/**
+	 * Cancels a running background fetch and waits until it has finished.
+	 */
+	void cancelPrefetch() {
+		Job job;
+		synchronized (this) {
+			job = prefetchJob;
+		}
+		if (job != null && !job.cancel()) {
+			try {
+				job.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Stops the service and a running background fetch.
+	 */
+	void stop() {
+		scheduler.shutdownNow();
+		cancelPrefetch();
+	}
+
+	/**
+	 * Fetches the projects one repository after another at low priority.
+	 */
+	private static class PrefetchJob extends Job {
+
+		PrefetchJob() {
+			super("ecl1: Fetching git repositories in the background");
+			setSystem(true);
+			setPriority(Job.DECORATE);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			long start = System.currentTimeMillis();
+			List<IProject> projects = GitBatchPullHandler.getProjectsForPull();
+			int fetched = 0;
+
+			try (SshSessionPool sshSessionPool = SshSessionFactory.getInstance() != null
+					? new SshSessionPool(SshSessionFactory.getInstance())
+					: null) {
+				for (List<IProject> repositoryProjects : GitBatchPull.groupByRepository(projects)) {
+					Set<String> fetchedRemotes = new HashSet<>();
+					for (IProject project : repositoryProjects) {
+						if (monitor.isCanceled()) {
+							logger.info("Background fetch canceled");
+							return Status.CANCEL_STATUS;
+						}
+						RepositoryPull pull = new RepositoryPull(project.getName(), project.getLocation().toFile(), sshSessionPool);
+						IStatus status = pull.fetch(monitor, fetchedRemotes);
+						if (!status.isOK()) {
+							// Problems are reported by the next batch pull
+							logger.debug("Background fetch: " + status.getMessage());
+						} else if (pull.needsIntegration()) {
+							fetched++;
+						}
+					}
+				}
+			}
+
+			logger.info("Background fetch of " + projects.size() + " projects found changes in " + fetched
+					+ " projects and took " + (System.currentTimeMillis() - start) + " ms");
+			return Status.OK_STATUS;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package net.sf.ecl1.git;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jgit.lib.ProgressMonitor;
+
+/**
+ * Shows the tasks of a JGit operation in the monitor of a job, lets the job cancel the operation
+ * and counts the objects received from the remote.
+ */
+class JGitProgressMonitor implements ProgressMonitor {
+
+	/** Title of the JGit task whose total work is the number of objects in a received pack */
+	private static final String RECEIVING_OBJECTS = "Receiving objects";
+
+	private final IProgressMonitor monitor;
+	private final String name;
+
+	private int receivedObjects;
+
+	/**
+	 * @param monitor monitor of the job
+	 * @param name shown in front of the tasks
+	 */
+	JGitProgressMonitor(IProgressMonitor monitor, String name) {
+		this.monitor = monitor;
+		this.name = name;
+	}
+
+	@Override
+	public void start(int totalTasks) {
+		// Only the titles of the tasks are shown
+	}
+
+	@Override
+	public void beginTask(String title, int totalWork) {
+		if (RECEIVING_OBJECTS.equals(title) && totalWork != UNKNOWN) {
+			receivedObjects += totalWork;
+		}
+		monitor.subTask(name + ": " + title);
+	}
+
+	@Override
+	public void update(int completed) {
+		// Only the titles of the tasks are shown
+	}
+
+	@Override
+	public void endTask() {
+		// Only the titles of the tasks are shown
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return monitor.isCanceled();
+	}
+
+	@Override
+	public void showDuration(boolean enabled) {
+		// Durations are measured by the batch pull
+	}
+
+	/**
+	 * @return the number of objects received so far
+	 */
+	int getReceivedObjects() {
+		return receivedObjects;
+	}
+}
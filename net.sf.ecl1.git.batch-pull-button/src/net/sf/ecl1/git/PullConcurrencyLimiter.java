@@ -0,0 +1,204 @@
+package net.sf.ecl1.git;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
+
+/**
+ * Limits the number of pulls that run at the same time and adapts the limit
+ * while the batch pull is running (AIMD: additive increase, multiplicative decrease).
+ * <p>
+ * The limit starts at the configured floor and doubles after every round (slow start)
+ * until the first congestion is detected. Afterwards it grows by one per round and is
+ * halved on congestion. A round ends after as many pulls finished as the limit allowed
+ * to run in parallel.
+ * <p>
+ * Congestion is a pull that failed because of the network, or a round whose
+ * throughput (finished pulls per second) dropped while its average latency rose
+ * far above the best round seen so far.
+ * <p>
+ * Slots are handed out in the order of the tickets, which the pulls take when they are scheduled,
+ * so that the pulls start in that order even if the limit is far below the number of threads.
+ * <p>
+ * A limiter with the same floor and ceiling acts as a plain fair counting semaphore.
+ */
+class PullConcurrencyLimiter {
+
+	private static final ICommonLogger logger = LoggerFactory.getLogger(PullConcurrencyLimiter.class.getSimpleName(), Activator.PLUGIN_ID, Activator.getDefault());
+
+	/** Interval for re-checking cancellation while waiting for a free slot */
+	private static final long WAIT_INTERVAL_MILLIS = 250;
+	/** A round is congested if its throughput dropped below this fraction of the previous round... */
+	private static final double THROUGHPUT_DROP_FACTOR = 0.8;
+	/** ...and its average latency exceeds the best round by this factor */
+	private static final double LATENCY_RISE_FACTOR = 2.0;
+
+	private final String name;
+	private final int floor;
+	private final int ceiling;
+
+	private int limit;
+	private int maxLimit;
+	private int running;
+	private boolean slowStart = true;
+
+	/** The ticket that is handed out next */
+	private int nextTicket;
+	/** The ticket whose pull may start next */
+	private int nextAdmitted;
+	/** Tickets after nextAdmitted whose pulls will not start */
+	private final Set<Integer> withdrawn = new HashSet<>();
+
+	private long roundStart = System.currentTimeMillis();
+	private int roundFinished;
+	private long roundLatencySum;
+	private double lastThroughput;
+	private double bestLatency = Double.MAX_VALUE;
+
+	/**
+	 * @param name used for logging
+	 * @param floor the lowest limit, at least 1
+	 * @param ceiling the highest limit, not lower than floor
+	 */
+	PullConcurrencyLimiter(String name, int floor, int ceiling) {
+		this.name = name;
+		this.floor = Math.max(1, floor);
+		this.ceiling = Math.max(this.floor, ceiling);
+		this.limit = this.floor;
+		this.maxLimit = this.limit;
+	}
+
+	/**
+	 * Takes the next place in the queue. Every ticket must either be used by {@link #acquire(int, BooleanSupplier)}
+	 * or be given back by {@link #withdraw(int)}, otherwise the following pulls never start.
+	 *
+	 * @return the ticket
+	 */
+	synchronized int takeTicket() {
+		return nextTicket++;
+	}
+
+	/**
+	 * Waits until all earlier tickets were admitted or withdrawn and less pulls than the current limit are running.
+	 *
+	 * @param ticket taken by {@link #takeTicket()}
+	 * @param isCanceled checked periodically while waiting
+	 * @return true if a slot was acquired, false if waiting was canceled or interrupted. The ticket is withdrawn then.
+	 */
+	synchronized boolean acquire(int ticket, BooleanSupplier isCanceled) {
+		while (ticket != nextAdmitted || running >= limit) {
+			if (isCanceled.getAsBoolean()) {
+				withdraw(ticket);
+				return false;
+			}
+			try {
+				wait(WAIT_INTERVAL_MILLIS);
+			} catch (InterruptedException e) {
+				withdraw(ticket);
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		nextAdmitted++;
+		skipWithdrawn();
+		running++;
+		// The next ticket may start as well if the limit allows
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * Gives back a ticket whose pull will not start, e.g. because it was canceled before it ran.
+	 * Tickets that were already admitted are ignored.
+	 */
+	synchronized void withdraw(int ticket) {
+		if (ticket < nextAdmitted) {
+			return;
+		}
+		withdrawn.add(ticket);
+		skipWithdrawn();
+		notifyAll();
+	}
+
+	private void skipWithdrawn() {
+		while (withdrawn.remove(nextAdmitted)) {
+			nextAdmitted++;
+		}
+	}
+
+	/**
+	 * Releases a slot acquired by {@link #acquire(int, BooleanSupplier)} and adapts the limit.
+	 *
+	 * @param durationMillis how long the pull took
+	 * @param networkFailure true if the pull failed because of the network
+	 */
+	synchronized void release(long durationMillis, boolean networkFailure) {
+		running--;
+		if (networkFailure) {
+			decrease("network failure");
+		} else {
+			roundFinished++;
+			roundLatencySum += durationMillis;
+			if (roundFinished >= limit) {
+				endRound();
+			}
+		}
+		notifyAll();
+	}
+
+	private void endRound() {
+		long now = System.currentTimeMillis();
+		double throughput = roundFinished * 1000.0 / Math.max(1, now - roundStart);
+		double latency = (double) roundLatencySum / roundFinished;
+		boolean congested = lastThroughput > 0
+				&& throughput < lastThroughput * THROUGHPUT_DROP_FACTOR
+				&& latency > bestLatency * LATENCY_RISE_FACTOR;
+		bestLatency = Math.min(bestLatency, latency);
+		lastThroughput = throughput;
+		if (congested) {
+			decrease("throughput dropped to " + String.format("%.2f", throughput) + " pulls/s");
+		} else {
+			increase();
+			resetRound(now);
+		}
+	}
+
+	private void increase() {
+		int newLimit = Math.min(ceiling, slowStart ? limit * 2 : limit + 1);
+		if (newLimit != limit) {
+			logger.debug(name + ": raising parallelism from " + limit + " to " + newLimit);
+			limit = newLimit;
+			maxLimit = Math.max(maxLimit, limit);
+		}
+	}
+
+	private void decrease(String reason) {
+		slowStart = false;
+		int newLimit = Math.max(floor, limit / 2);
+		if (newLimit != limit) {
+			logger.debug(name + ": lowering parallelism from " + limit + " to " + newLimit + " (" + reason + ")");
+			limit = newLimit;
+		}
+		resetRound(System.currentTimeMillis());
+	}
+
+	private void resetRound(long now) {
+		roundStart = now;
+		roundFinished = 0;
+		roundLatencySum = 0;
+	}
+
+	synchronized int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @return the highest limit reached so far
+	 */
+	synchronized int getMaxLimit() {
+		return maxLimit;
+	}
+}
@@ -0,0 +1,107 @@
+package net.sf.ecl1.git;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.core.resources.IProject;
+
+import net.sf.ecl1.utilities.general.JsonUtil;
+import net.sf.ecl1.utilities.general.WorkspaceSupport;
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
+
+/**
+ * Pull durations and transferred bytes of the projects of past batch pulls, stored in the workspace metadata.
+ * <p>
+ * Each value is an exponential moving average, so that a single slow pull does not dominate the schedule.
+ */
+public class PullHistory {
+
+	private static final ICommonLogger logger = LoggerFactory.getLogger(PullHistory.class.getSimpleName(), Activator.PLUGIN_ID, Activator.getDefault());
+
+	private static final String FILE_NAME = "pull-history.json";
+
+	/** Weight of the latest pull in the moving average */
+	private static final double SMOOTHING = 0.3;
+
+	/** Moving averages of one project */
+	private static class Entry {
+		double durationMillis;
+		double transferredBytes;
+		int pulls;
+	}
+
+	private Map<String, Entry> projects = new TreeMap<>();
+
+	/**
+	 * Loads the history of the current workspace.
+	 *
+	 * @return the stored history, an empty history if there is none or it cannot be read
+	 */
+	public static PullHistory load() {
+		try {
+			PullHistory history = JsonUtil.fromJson(PullHistory.class, getFile());
+			if (history != null && history.projects != null) {
+				return history;
+			}
+		} catch (IOException e) {
+			logger.warn("Could not read git pull history: " + e.getMessage());
+		}
+		return new PullHistory();
+	}
+
+	/**
+	 * Stores the history in the workspace metadata.
+	 */
+	public synchronized void save() {
+		try {
+			JsonUtil.toJson(this, getFile());
+		} catch (IOException e) {
+			logger.warn("Could not save git pull history: " + e.getMessage());
+		}
+	}
+
+	private static Path getFile() {
+		return WorkspaceSupport.getPluginStateLocation(Activator.PLUGIN_ID).resolve(FILE_NAME);
+	}
+
+	/**
+	 * Adds a pull of a project to its moving averages.
+	 */
+	public synchronized void record(String project, long durationMillis, long transferredBytes) {
+		Entry entry = projects.get(project);
+		if (entry == null) {
+			entry = new Entry();
+			entry.durationMillis = durationMillis;
+			entry.transferredBytes = transferredBytes;
+			projects.put(project, entry);
+		} else {
+			entry.durationMillis += SMOOTHING * (durationMillis - entry.durationMillis);
+			entry.transferredBytes += SMOOTHING * (transferredBytes - entry.transferredBytes);
+		}
+		entry.pulls++;
+	}
+
+	/**
+	 * @return the expected pull duration of a project, null if it was never pulled
+	 */
+	synchronized Double getExpectedDuration(String project) {
+		Entry entry = projects.get(project);
+		return entry != null ? entry.durationMillis : null;
+	}
+
+	/**
+	 * Orders projects by their expected pull duration, longest first.
+	 * Projects without history come first, because they may be slow. Among them, the fallback order applies.
+	 * Sorting with this order is stable, so that the fallback order also decides on a cold start.
+	 */
+	public Comparator<IProject> longestExpectedFirst() {
+		return Comparator.comparingDouble(project -> {
+			Double expected = getExpectedDuration(project.getName());
+			return expected != null ? -expected : Double.NEGATIVE_INFINITY;
+		});
+	}
+}
@@ -0,0 +1,116 @@
+package net.sf.ecl1.git;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.core.runtime.IStatus;
+
+import net.sf.ecl1.utilities.general.JsonUtil;
+import net.sf.ecl1.utilities.general.WorkspaceSupport;
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
+
+/**
+ * Machine readable report of the last batch pull, written as json to the workspace metadata.
+ * It shows which repositories are slow and whether scheduling and parallelism help.
+ */
+class PullReport {
+
+	private static final ICommonLogger logger = LoggerFactory.getLogger(PullReport.class.getSimpleName(), Activator.PLUGIN_ID, Activator.getDefault());
+
+	private static final String FILE_NAME = "pull-report.json";
+
+	/** Measurements of one project */
+	private static class ProjectReport {
+		/** pulled, up to date, failed or canceled */
+		String result;
+		String message;
+		/** Duration of the fetch including the LFS prefetch */
+		long fetchMillis;
+		/** Duration of the merge or rebase including the checkout */
+		long integrateMillis;
+		long transferredBytes;
+		int receivedObjects;
+		int downloadedLfsObjects;
+		int prefetchedLfsObjects;
+
+		void setResult(IStatus status, boolean upToDate) {
+			if (status.getSeverity() == IStatus.CANCEL) {
+				result = "canceled";
+			} else if (!status.isOK()) {
+				result = "failed";
+				message = status.getMessage();
+			} else if (upToDate) {
+				result = "up to date";
+			} else {
+				result = "pulled";
+			}
+		}
+	}
+
+	private final String started = Instant.now().toString();
+	private long durationMillis;
+	private final boolean pipelined;
+	private int maxParallelism;
+	private int finalParallelism;
+	private int sshSessionHits;
+	private int sshSessionMisses;
+	private final Map<String, ProjectReport> projects = new TreeMap<>();
+
+	PullReport(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+
+	/**
+	 * Records the fetch of a pipelined pull or a one-step pull.
+	 *
+	 * @param durationMillis duration of the fetch or of the one-step pull, which includes the integration
+	 */
+	synchronized void recordPull(RepositoryPull pull, IStatus status, long durationMillis) {
+		ProjectReport project = projects.computeIfAbsent(pull.getName(), k -> new ProjectReport());
+		project.setResult(status, pull.isUpToDate());
+		project.fetchMillis = Math.max(0, durationMillis - pull.getIntegrateMillis());
+		project.integrateMillis = pull.getIntegrateMillis();
+		project.transferredBytes = pull.getTransferredBytes();
+		project.receivedObjects = pull.getReceivedObjects();
+		project.downloadedLfsObjects = pull.getDownloadedLfsObjects();
+		project.prefetchedLfsObjects = pull.getPrefetchedLfsObjects();
+	}
+
+	/**
+	 * Records the merge or rebase of a pipelined pull.
+	 */
+	synchronized void recordIntegration(RepositoryPull pull, IStatus status, long durationMillis) {
+		ProjectReport project = projects.computeIfAbsent(pull.getName(), k -> new ProjectReport());
+		project.setResult(status, false);
+		project.integrateMillis = durationMillis;
+		project.downloadedLfsObjects = pull.getDownloadedLfsObjects();
+	}
+
+	synchronized void setParallelism(int maxParallelism, int finalParallelism) {
+		this.maxParallelism = maxParallelism;
+		this.finalParallelism = finalParallelism;
+	}
+
+	synchronized void setSshSessions(int hits, int misses) {
+		this.sshSessionHits = hits;
+		this.sshSessionMisses = misses;
+	}
+
+	/**
+	 * Completes the report and writes it to the workspace metadata, replacing the report of the previous batch pull.
+	 */
+	synchronized void save(long durationMillis) {
+		this.durationMillis = durationMillis;
+		Path file = WorkspaceSupport.getPluginStateLocation(Activator.PLUGIN_ID).resolve(FILE_NAME);
+		try {
+			JsonUtil.toJson(this, file);
+			logger.info("Git batch pull report written to " + file);
+		} catch (IOException e) {
+			logger.warn("Could not write git batch pull report: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,777 @@
+package net.sf.ecl1.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.PullResult;
+import org.eclipse.jgit.api.TransportConfigCallback;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.JGitInternalException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.BranchConfig;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.merge.ResolveMerger;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteConfig;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.FS.ExecutionResult;
+
+import net.sf.ecl1.utilities.general.GitUtil;
+import net.sf.ecl1.utilities.general.LfsUtil;
+import net.sf.ecl1.utilities.general.SharedLfsStore;
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
+
+/**
+ * Pulls the git repository of one project.
+ * <p>
+ * The pull either runs in one step ({@link #pull(IProgressMonitor, Set)}) or is split into the network bound
+ * {@link #fetch(IProgressMonitor, Set)} and the disk bound {@link #integrate(IProgressMonitor)}. The latter merges or rebases
+ * the fetched remote tracking branch exactly like "git pull" would, but without
+ * contacting the remote again.
+ */
+public class RepositoryPull {
+
+	private static final ICommonLogger logger = LoggerFactory.getLogger(RepositoryPull.class.getSimpleName(), Activator.PLUGIN_ID, Activator.getDefault());
+
+	/** Status code of pulls that failed because of the network */
+	static final int NETWORK_FAILURE = 1;
+
+	/** Pseudo remote that makes a pull use local refs only */
+	private static final String LOCAL_REMOTE = ".";
+
+	private static final String GITDIR_PREFIX = "gitdir:";
+
+	/** Config keys of partial clones, "extensions.partialClone" and "remote.*.promisor" */
+	private static final String PARTIAL_CLONE = "partialclone";
+	private static final String PROMISOR = "promisor";
+
+	/** Number of paths listed in the reason why an integration is skipped */
+	private static final int MAX_LISTED_PATHS = 5;
+
+	private interface GitOperation {
+		IStatus run(Repository repository, Git git) throws GitAPIException, IOException;
+	}
+
+	private interface PullCall {
+		IStatus call() throws GitAPIException, IOException;
+	}
+
+	private final String name;
+	private final File projectRoot;
+
+	/** Configures the transports of fetches, e.g. to share SSH sessions */
+	private final TransportConfigCallback transportConfig;
+
+	/**
+	 * Upstream of the checked out branch
+	 *
+	 * @param remote name of the remote, "." for a local upstream
+	 * @param remoteBranch branch on the remote
+	 * @param trackingBranch local ref the remote branch is fetched into
+	 */
+	private record Upstream(String remote, String remoteBranch, String trackingBranch) {
+
+		boolean isLocal() {
+			return LOCAL_REMOTE.equals(remote);
+		}
+	}
+
+	/** Branch to integrate after a successful {@link #fetch(IProgressMonitor, Set)}, null if there is nothing to integrate */
+	private String upstreamBranch;
+
+	/** True if the last pull or fetch was skipped because the repository was up to date */
+	private boolean upToDate;
+
+	/** Size of the packs received by the last pull or fetch */
+	private long transferredBytes;
+
+	/** Number of objects received by the last pull or fetch */
+	private int receivedObjects;
+
+	/** Number of LFS objects downloaded by the last pull or integration */
+	private int downloadedLfsObjects;
+
+	/** Number of LFS objects downloaded ahead of the checkout by the last pull or fetch */
+	private int prefetchedLfsObjects;
+
+	/** Duration of the merge or rebase including the checkout of the last pull or integration */
+	private long integrateMillis;
+
+	/** Files changed in the working tree by the last pull or integration, null if unknown */
+	private List<DiffEntry> changes;
+
+	/** True to check in memory that the upstream can be integrated before the working tree is touched */
+	private boolean conflictPrecheck;
+
+	public RepositoryPull(String name, File projectRoot, TransportConfigCallback transportConfig) {
+		this.name = name;
+		this.projectRoot = projectRoot;
+		this.transportConfig = transportConfig;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	File getProjectRoot() {
+		return projectRoot;
+	}
+
+	/**
+	 * @return true if the last {@link #pull(IProgressMonitor, Set)} or {@link #fetch(IProgressMonitor, Set)} was skipped, because the upstream branch
+	 *         has not moved and is already contained in the checked out branch
+	 */
+	public boolean isUpToDate() {
+		return upToDate;
+	}
+
+	/**
+	 * @return the size of the packs received by the last {@link #pull(IProgressMonitor, Set)} or {@link #fetch(IProgressMonitor, Set)}
+	 */
+	public long getTransferredBytes() {
+		return transferredBytes;
+	}
+
+	/**
+	 * @return the number of objects received by the last {@link #pull(IProgressMonitor, Set)} or {@link #fetch(IProgressMonitor, Set)}
+	 */
+	int getReceivedObjects() {
+		return receivedObjects;
+	}
+
+	/**
+	 * @return the number of LFS objects downloaded by the last {@link #pull(IProgressMonitor, Set)} or {@link #integrate(IProgressMonitor)}
+	 */
+	int getDownloadedLfsObjects() {
+		return downloadedLfsObjects;
+	}
+
+	/**
+	 * @return the number of LFS objects downloaded ahead of the checkout by the last {@link #pull(IProgressMonitor, Set)}
+	 *         or {@link #fetch(IProgressMonitor, Set)}
+	 */
+	int getPrefetchedLfsObjects() {
+		return prefetchedLfsObjects;
+	}
+
+	/**
+	 * @return the milliseconds the last {@link #pull(IProgressMonitor, Set)} or {@link #integrate(IProgressMonitor)} took to merge or rebase,
+	 *         0 if nothing was integrated
+	 */
+	long getIntegrateMillis() {
+		return integrateMillis;
+	}
+
+	/**
+	 * @return the files the last {@link #pull(IProgressMonitor, Set)} or {@link #integrate(IProgressMonitor)} changed in the working tree,
+	 *         null if they are unknown, e.g. because a merge failed and left conflicts
+	 */
+	List<DiffEntry> getChanges() {
+		return changes;
+	}
+
+	/**
+	 * @return true if a successful {@link #fetch(IProgressMonitor, Set)} left something to {@link #integrate(IProgressMonitor)}
+	 */
+	boolean needsIntegration() {
+		return upstreamBranch != null;
+	}
+
+	/**
+	 * @param conflictPrecheck true to skip repositories whose upstream would conflict with the checked out branch
+	 *        or with uncommitted changes.
+	 */
+	public void setConflictPrecheck(boolean conflictPrecheck) {
+		this.conflictPrecheck = conflictPrecheck;
+	}
+
+	public static boolean isNetworkFailure(IStatus status) {
+		return status.getSeverity() == IStatus.WARNING && status.getCode() == NETWORK_FAILURE;
+	}
+
+	private Repository openRepository() throws IOException {
+		return new FileRepositoryBuilder()
+				.setWorkTree(projectRoot)
+				.readEnvironment()
+				.findGitDir(projectRoot)
+				.build();
+	}
+
+	/**
+	 * Fetches and integrates in one step.
+	 * Repositories whose upstream has not moved are not fetched.
+	 * The fetch and the integration are separate, so that {@link #getIntegrateMillis()} can be measured.
+	 *
+	 * @param fetchedRemotes remotes of the repository that were already fetched by this batch, e.g. for another
+	 *        worktree of the repository. They are not fetched again. A remote fetched by this pull is added.
+	 */
+	public IStatus pull(IProgressMonitor monitor, Set<String> fetchedRemotes) {
+		JGitProgressMonitor progress = new JGitProgressMonitor(monitor, name);
+		upToDate = false;
+		transferredBytes = 0;
+		receivedObjects = 0;
+		downloadedLfsObjects = 0;
+		prefetchedLfsObjects = 0;
+		integrateMillis = 0;
+		changes = List.of();
+		return runInRepository((repository, git) -> {
+			Upstream upstream = findUpstream(repository);
+			if (upstream != null) {
+				if (fetchedRemotes.contains(upstream.remote()) || isRemoteUnchanged(repository, git, upstream)) {
+					if (isIntegrated(repository, upstream)) {
+						upToDate = true;
+						return Status.OK_STATUS;
+					}
+				} else if (!upstream.isLocal()) {
+					fetchUpstream(repository, git, upstream, progress);
+					fetchedRemotes.add(upstream.remote());
+				}
+				prefetchLfsObjects(repository, upstream);
+				return integrateTimed(repository, git, upstream.trackingBranch(), progress);
+			}
+			// Without upstream, JGit reports what is missing
+			long packSize = getPackSize(repository);
+			IStatus status = pullAndRecordChanges(repository, () -> parsePullResult(git.pull()
+					.setTransportConfigCallback(transportConfig)
+					.setProgressMonitor(progress)
+					.call()));
+			transferredBytes = Math.max(0, getPackSize(repository) - packSize);
+			receivedObjects = progress.getReceivedObjects();
+			return status;
+		});
+	}
+
+	/**
+	 * Fetches the upstream of the checked out branch without touching the working tree.
+	 * Repositories whose upstream has not moved are not fetched.
+	 *
+	 * @param fetchedRemotes remotes of the repository that were already fetched by this batch, e.g. for another
+	 *        worktree of the repository. They are not fetched again. A remote fetched by this fetch is added.
+	 */
+	IStatus fetch(IProgressMonitor monitor, Set<String> fetchedRemotes) {
+		JGitProgressMonitor progress = new JGitProgressMonitor(monitor, name);
+		upstreamBranch = null;
+		upToDate = false;
+		transferredBytes = 0;
+		receivedObjects = 0;
+		prefetchedLfsObjects = 0;
+		changes = List.of();
+		return runInRepository((repository, git) -> {
+			String fullBranch = repository.getFullBranch();
+			if (fullBranch == null || !fullBranch.startsWith(Constants.R_HEADS)) {
+				return new Status(IStatus.WARNING, Activator.PLUGIN_ID,
+						"Failed to pull " + name + ": no branch is checked out. Skipping and proceeding.");
+			}
+			Upstream upstream = findUpstream(repository);
+			if (upstream == null) {
+				return new Status(IStatus.WARNING, Activator.PLUGIN_ID,
+						"Failed to pull " + name + ": branch " + Repository.shortenRefName(fullBranch) + " has no upstream branch. Skipping and proceeding.");
+			}
+
+			if (fetchedRemotes.contains(upstream.remote()) || isRemoteUnchanged(repository, git, upstream)) {
+				if (isIntegrated(repository, upstream)) {
+					upToDate = true;
+					return Status.OK_STATUS;
+				}
+			} else if (!upstream.isLocal()) {
+				fetchUpstream(repository, git, upstream, progress);
+				fetchedRemotes.add(upstream.remote());
+			}
+			prefetchLfsObjects(repository, upstream);
+			upstreamBranch = upstream.trackingBranch();
+			return Status.OK_STATUS;
+		});
+	}
+
+	/**
+	 * Merges or rebases the upstream branch updated by {@link #fetch(IProgressMonitor, Set)}, as configured for the branch.
+	 */
+	IStatus integrate(IProgressMonitor monitor) {
+		downloadedLfsObjects = 0;
+		integrateMillis = 0;
+		if (upstreamBranch == null) {
+			return Status.OK_STATUS;
+		}
+		JGitProgressMonitor progress = new JGitProgressMonitor(monitor, name);
+		changes = List.of();
+		return runInRepository((repository, git) -> integrateTimed(repository, git, upstreamBranch, progress));
+	}
+
+	private IStatus integrateTimed(Repository repository, Git git, String trackingBranch, ProgressMonitor progress)
+			throws GitAPIException, IOException {
+		long start = System.currentTimeMillis();
+		try {
+			return integrateChecked(repository, git, trackingBranch, progress);
+		} finally {
+			integrateMillis = System.currentTimeMillis() - start;
+		}
+	}
+
+	private void fetchUpstream(Repository repository, Git git, Upstream upstream, JGitProgressMonitor progress)
+			throws GitAPIException, IOException {
+		long packSize = getPackSize(repository);
+		if (isPartialClone(repository)) {
+			// The git client applies the filter of the partial clone to the fetch
+			ExecutionResult result = runNativeGit(repository, "fetch", upstream.remote());
+			if (result.getRc() != 0) {
+				throw new TransportException("Fetching " + upstream.remote() + " failed: " + getErrorOutput(result));
+			}
+		} else {
+			git.fetch()
+					.setRemote(upstream.remote())
+					.setTransportConfigCallback(transportConfig)
+					.setProgressMonitor(progress)
+					.call();
+		}
+		transferredBytes = Math.max(0, getPackSize(repository) - packSize);
+		receivedObjects = progress.getReceivedObjects();
+	}
+
+	/**
+	 * @return true if LFS objects were checked out in the repository before
+	 */
+	private static boolean usesLfs(Repository repository) throws IOException {
+		return LfsUtil.getObjectsDirectory(repository).isDirectory();
+	}
+
+	/**
+	 * Downloads the LFS objects that the integration of the fetched upstream will check out. Otherwise the checkout
+	 * would download them one after another. If the prefetch fails, the checkout downloads the objects itself.
+	 */
+	private void prefetchLfsObjects(Repository repository, Upstream upstream) throws IOException {
+		// The objects of a partial clone are loaded on demand, reading the pointers would fetch them one by one
+		if (upstream.isLocal() || isPartialClone(repository) || !usesLfs(repository)) {
+			return;
+		}
+		ObjectId head = repository.resolve(Constants.HEAD);
+		ObjectId tracking = repository.resolve(upstream.trackingBranch());
+		if (head == null || tracking == null) {
+			return;
+		}
+		Set<String> missing = LfsUtil.findMissingObjects(repository, head, tracking);
+		if (!missing.isEmpty() && SharedLfsStore.isEnabled()) {
+			// Objects that other repositories of the workspace already downloaded are linked instead
+			missing = SharedLfsStore.linkObjects(LfsUtil.getObjectsDirectory(repository), missing);
+		}
+		if (missing.isEmpty()) {
+			return;
+		}
+		if (!LfsUtil.isClientAvailable()) {
+			logger.debug(name + ": git lfs is not installed, the checkout downloads " + missing.size() + " LFS objects instead");
+			return;
+		}
+		logger.info(name + ": prefetching " + missing.size() + " LFS objects");
+		int lfsObjects = countLfsObjects(repository);
+		try {
+			ExecutionResult result = LfsUtil.fetchObjects(repository.getWorkTree(), upstream.remote(), upstream.trackingBranch());
+			if (result.getRc() != 0) {
+				logger.warn(name + ": LFS prefetch failed, the checkout downloads the objects instead: " + getErrorOutput(result));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			prefetchedLfsObjects = Math.max(0, countLfsObjects(repository) - lfsObjects);
+		}
+	}
+
+	/**
+	 * Integrates a fetched upstream branch, unless the conflict pre-check finds that it cannot be integrated cleanly.
+	 */
+	private IStatus integrateChecked(Repository repository, Git git, String trackingBranch, ProgressMonitor progress)
+			throws GitAPIException, IOException {
+		if (isPartialClone(repository)) {
+			// The in-memory pre-check would need the blobs that a partial clone only loads on checkout
+			return pullAndRecordChanges(repository, () -> pullNatively(repository, trackingBranch));
+		}
+		if (conflictPrecheck) {
+			String problem = findIntegrationProblem(repository, git, trackingBranch);
+			if (problem != null) {
+				return new Status(IStatus.WARNING, Activator.PLUGIN_ID,
+						"Skipped pull of " + name + ": " + problem + ". Skipping and proceeding.");
+			}
+		}
+		return pullAndRecordChanges(repository, () -> parsePullResult(pullLocal(git, trackingBranch, progress)));
+	}
+
+	/**
+	 * Merges or rebases a fetched upstream branch with the git client, which loads missing objects of a partial clone on demand.
+	 */
+	private IStatus pullNatively(Repository repository, String trackingBranch) throws IOException {
+		ExecutionResult result = runNativeGit(repository, "pull", "--no-edit", LOCAL_REMOTE, trackingBranch);
+		if (result.getRc() != 0) {
+			return new Status(IStatus.WARNING, Activator.PLUGIN_ID,
+					"Pull from " + name + " was not successful: " + getErrorOutput(result));
+		}
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * A partial clone lacks objects, e.g. blobs, that the git client fetches from a promisor remote when they are needed.
+	 * JGit cannot do that, so such repositories are fetched and integrated by the git client.
+	 *
+	 * @return true if the repository was cloned with a filter
+	 */
+	private static boolean isPartialClone(Repository repository) {
+		StoredConfig config = repository.getConfig();
+		if (config.getString(ConfigConstants.CONFIG_EXTENSIONS_SECTION, null, PARTIAL_CLONE) != null) {
+			return true;
+		}
+		for (String remote : config.getSubsections(ConfigConstants.CONFIG_REMOTE_SECTION)) {
+			if (config.getBoolean(ConfigConstants.CONFIG_REMOTE_SECTION, remote, PROMISOR, false)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static ExecutionResult runNativeGit(Repository repository, String... args) throws IOException {
+		try {
+			return GitUtil.runNativeGit(repository.getWorkTree(), args);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("git " + args[0] + " was interrupted");
+		}
+	}
+
+	private static String getErrorOutput(ExecutionResult result) throws IOException {
+		return new String(result.getStderr().toByteArray()).trim();
+	}
+
+	/**
+	 * Checks without touching the working tree whether the upstream branch can be integrated:
+	 * a three-way merge in memory must succeed and no uncommitted or untracked file may be changed by the upstream.
+	 * A rebase is checked like a merge, it replays the same changes on the same base.
+	 *
+	 * @return null if the upstream can be integrated, otherwise the reason why it cannot
+	 */
+	private String findIntegrationProblem(Repository repository, Git git, String trackingBranch)
+			throws GitAPIException, IOException {
+		ObjectId head = repository.resolve(Constants.HEAD);
+		ObjectId upstream = repository.resolve(trackingBranch);
+		if (head == null || upstream == null) {
+			// Let the pull report the problem
+			return null;
+		}
+		ObjectId base;
+		try (RevWalk walk = new RevWalk(repository)) {
+			RevCommit headCommit = walk.parseCommit(head);
+			RevCommit upstreamCommit = walk.parseCommit(upstream);
+			if (walk.isMergedInto(upstreamCommit, headCommit)) {
+				return null;
+			}
+			base = walk.isMergedInto(headCommit, upstreamCommit) ? head : null;
+		}
+		String shortBranch = Repository.shortenRefName(trackingBranch);
+		if (base == null) {
+			ResolveMerger merger = (ResolveMerger) MergeStrategy.RECURSIVE.newMerger(repository, true);
+			if (!merger.merge(head, upstream)) {
+				return "merging " + shortBranch + " would conflict in " + listPaths(merger.getUnmergedPaths());
+			}
+			base = merger.getBaseCommitId();
+		}
+
+		Set<String> incoming = new HashSet<>();
+		List<DiffEntry> upstreamChanges = diff(repository, base, upstream);
+		if (upstreamChanges == null) {
+			return null;
+		}
+		for (DiffEntry change : upstreamChanges) {
+			incoming.add(change.getOldPath());
+			incoming.add(change.getNewPath());
+		}
+		org.eclipse.jgit.api.Status status = git.status().call();
+		Set<String> dirty = new TreeSet<>(status.getUncommittedChanges());
+		dirty.addAll(status.getUntracked());
+		dirty.retainAll(incoming);
+		if (!dirty.isEmpty()) {
+			return "local changes would be overwritten by " + shortBranch + " in " + listPaths(dirty);
+		}
+		return null;
+	}
+
+	private static String listPaths(Iterable<String> paths) {
+		StringBuilder list = new StringBuilder();
+		int count = 0;
+		for (String path : paths) {
+			if (count < MAX_LISTED_PATHS) {
+				list.append(count == 0 ? "" : ", ").append(path);
+			}
+			count++;
+		}
+		if (count > MAX_LISTED_PATHS) {
+			list.append(" and ").append(count - MAX_LISTED_PATHS).append(" more files");
+		}
+		return list.toString();
+	}
+
+	private static PullResult pullLocal(Git git, String trackingBranch, ProgressMonitor progress) throws GitAPIException {
+		return git.pull()
+				.setRemote(LOCAL_REMOTE)
+				.setRemoteBranchName(trackingBranch)
+				.setProgressMonitor(progress)
+				.call();
+	}
+
+	/**
+	 * Runs a pull and records the files it changed by comparing the trees of the old and the new HEAD.
+	 */
+	private IStatus pullAndRecordChanges(Repository repository, PullCall pullCall) throws GitAPIException, IOException {
+		ObjectId oldHead = repository.resolve(Constants.HEAD);
+		int lfsObjects = countLfsObjects(repository);
+		// A pull that fails halfway may have changed any file
+		changes = null;
+		IStatus status;
+		try {
+			status = pullCall.call();
+		} finally {
+			downloadedLfsObjects = Math.max(0, countLfsObjects(repository) - lfsObjects);
+		}
+		if (status.isOK()) {
+			changes = diff(repository, oldHead, repository.resolve(Constants.HEAD));
+		}
+		return status;
+	}
+
+	private static List<DiffEntry> diff(Repository repository, ObjectId oldHead, ObjectId newHead) throws IOException {
+		if (oldHead == null || newHead == null) {
+			return null;
+		}
+		if (oldHead.equals(newHead)) {
+			return List.of();
+		}
+		try (RevWalk walk = new RevWalk(repository);
+				TreeWalk treeWalk = new TreeWalk(repository)) {
+			treeWalk.setRecursive(true);
+			treeWalk.addTree(walk.parseCommit(oldHead).getTree());
+			treeWalk.addTree(walk.parseCommit(newHead).getTree());
+			return DiffEntry.scan(treeWalk);
+		}
+	}
+
+	/**
+	 * Returns the upstream of the checked out branch, null if there is none.
+	 * Like "git pull", a branch without merge configuration pulls the remote branch of the same name.
+	 */
+	private static Upstream findUpstream(Repository repository) throws IOException {
+		String fullBranch = repository.getFullBranch();
+		if (fullBranch == null || !fullBranch.startsWith(Constants.R_HEADS)) {
+			return null;
+		}
+		BranchConfig branchConfig = new BranchConfig(repository.getConfig(), Repository.shortenRefName(fullBranch));
+		String remote = branchConfig.getRemote();
+		if (remote == null) {
+			remote = Constants.DEFAULT_REMOTE_NAME;
+		}
+		String merge = branchConfig.getMerge();
+		if (merge == null) {
+			merge = fullBranch;
+		}
+		if (LOCAL_REMOTE.equals(remote)) {
+			return new Upstream(remote, merge, merge);
+		}
+		try {
+			RemoteConfig remoteConfig = new RemoteConfig(repository.getConfig(), remote);
+			for (RefSpec refSpec : remoteConfig.getFetchRefSpecs()) {
+				if (refSpec.matchSource(merge)) {
+					return new Upstream(remote, merge, refSpec.expandFromSource(merge).getDestination());
+				}
+			}
+		} catch (URISyntaxException e) {
+			throw new IOException("Invalid configuration of remote " + remote, e);
+		}
+		return null;
+	}
+
+	/**
+	 * Compares the remote tracking branch with the ref advertisement of the remote (like "git ls-remote").
+	 * This is much cheaper than a fetch, which also negotiates the objects to transfer.
+	 *
+	 * @return true if the upstream branch on the remote still points to the locally known commit
+	 */
+	private boolean isRemoteUnchanged(Repository repository, Git git, Upstream upstream)
+			throws GitAPIException, IOException {
+		if (upstream.isLocal()) {
+			return false;
+		}
+		Ref trackingRef = repository.exactRef(upstream.trackingBranch());
+		if (trackingRef == null || trackingRef.getObjectId() == null) {
+			return false;
+		}
+		Ref remoteRef = git.lsRemote()
+				.setRemote(upstream.remote())
+				.setTransportConfigCallback(transportConfig)
+				.callAsMap()
+				.get(upstream.remoteBranch());
+		boolean unchanged = remoteRef != null && trackingRef.getObjectId().equals(remoteRef.getObjectId());
+		if (unchanged) {
+			logger.debug(name + ": " + upstream.remoteBranch() + " on " + upstream.remote() + " has not changed");
+		}
+		return unchanged;
+	}
+
+	/**
+	 * @return true if the checked out branch already contains the remote tracking branch
+	 */
+	private static boolean isIntegrated(Repository repository, Upstream upstream) throws IOException {
+		ObjectId head = repository.resolve(Constants.HEAD);
+		ObjectId tracking = repository.resolve(upstream.trackingBranch());
+		if (head == null || tracking == null) {
+			return false;
+		}
+		if (head.equals(tracking)) {
+			return true;
+		}
+		try (RevWalk walk = new RevWalk(repository)) {
+			return walk.isMergedInto(walk.parseCommit(tracking), walk.parseCommit(head));
+		}
+	}
+
+	/**
+	 * Returns the git directory that holds the objects of a repository.
+	 * Worktrees share the objects of their main repository, which is referenced by their "commondir" file.
+	 */
+	static File getCommonDirectory(Repository repository) throws IOException {
+		return GitUtil.getCommonDirectory(repository.getDirectory());
+	}
+
+	/**
+	 * Returns the git directory that holds the objects of the repository of a project without opening the repository.
+	 * All worktrees of a repository return the same directory.
+	 *
+	 * @return the canonical common git directory, null if the project is not the root of a git working tree
+	 */
+	static File findCommonDirectory(File projectRoot) {
+		File dotGit = new File(projectRoot, Constants.DOT_GIT);
+		try {
+			if (dotGit.isDirectory()) {
+				return dotGit.getCanonicalFile();
+			}
+			if (dotGit.isFile()) {
+				// A worktree references its git directory by "gitdir: <path>"
+				String content = Files.readString(dotGit.toPath()).trim();
+				if (content.startsWith(GITDIR_PREFIX)) {
+					File gitDir = projectRoot.toPath().resolve(content.substring(GITDIR_PREFIX.length()).trim()).toFile();
+					return GitUtil.getCommonDirectory(gitDir).getCanonicalFile();
+				}
+			}
+		} catch (IOException e) {
+			logger.debug("Could not resolve git directory of " + projectRoot + ": " + e.getMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * Counts the objects in the LFS store of a repository. Checkouts download missing LFS objects into it.
+	 */
+	private static int countLfsObjects(Repository repository) throws IOException {
+		Path lfsObjects = LfsUtil.getObjectsDirectory(repository).toPath();
+		if (!Files.isDirectory(lfsObjects)) {
+			return 0;
+		}
+		try (Stream<Path> files = Files.walk(lfsObjects)) {
+			return (int) files.filter(Files::isRegularFile).count();
+		}
+	}
+
+	/**
+	 * Returns the total size of the packs of a repository. The fetched objects are stored in new packs,
+	 * so the growth of this size is what a fetch transferred.
+	 */
+	private static long getPackSize(Repository repository) throws IOException {
+		File[] packs = new File(getCommonDirectory(repository), "objects/pack").listFiles((dir, fileName) -> fileName.endsWith(".pack"));
+		long size = 0;
+		if (packs != null) {
+			for (File pack : packs) {
+				size += pack.length();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Opens the repository of the project and runs a git operation on it.
+	 * Failures are converted to warnings, so that a failed pull does not stop the batch.
+	 */
+	private IStatus runInRepository(GitOperation operation) {
+		try (Repository repository = openRepository();
+				Git git = new Git(repository)) {
+
+			return operation.run(repository, git);
+
+		} catch (org.eclipse.jgit.errors.RepositoryNotFoundException e) {
+			logger.info(name + " is not managed via Git: " + e.getMessage());
+			return Status.OK_STATUS;
+		} catch (TransportException e) {
+			return new Status(IStatus.WARNING, Activator.PLUGIN_ID, NETWORK_FAILURE,
+					"Failed to pull " + name + ": " + e.getMessage() + ". Skipping and proceeding.", e);
+		} catch (GitAPIException | JGitInternalException e) {
+			return new Status(IStatus.WARNING, Activator.PLUGIN_ID,
+					"Failed to pull " + name + ": " + e.getMessage() + ". Skipping and proceeding.", e);
+		} catch (IOException e) {
+			logger.info(name + " failed: " + e.getMessage());
+			return new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Failed to pull " + name + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Creates the status for a pull result.
+	 */
+	private IStatus parsePullResult(PullResult pullResult) {
+
+		if (pullResult.isSuccessful()) {
+			return Status.OK_STATUS;
+		}
+
+		MultiStatus result = new MultiStatus(Activator.PLUGIN_ID, 0, "Pull from " + name + " was not successful.");
+
+		boolean reasonFound = false;
+
+		if (pullResult.getMergeResult() != null
+				&& !pullResult.getMergeResult().getMergeStatus().isSuccessful()) {
+
+			result.add(new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Pull from " + name + " was not successful because the merge failed."));
+			reasonFound = true;
+		}
+
+		if (pullResult.getRebaseResult() != null
+				&& !pullResult.getRebaseResult()
+						.getStatus()
+						.isSuccessful()) {
+
+			result.add(new Status(IStatus.WARNING, Activator.PLUGIN_ID, "Pull from " + name + " was not successful because the rebase failed."));
+			reasonFound = true;
+		}
+
+		if (!reasonFound) {
+			result.add(new Status(IStatus.WARNING, Activator.PLUGIN_ID," Pull from " + name + " was not successful."));
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,232 @@
+package net.sf.ecl1.git;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.api.TransportConfigCallback;
+import org.eclipse.jgit.errors.TransportException;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.FtpChannel;
+import org.eclipse.jgit.transport.RemoteSession;
+import org.eclipse.jgit.transport.RemoteSession2;
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.jgit.transport.SshTransport;
+import org.eclipse.jgit.transport.Transport;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.util.FS;
+
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
+
+/**
+ * Shares authenticated SSH sessions between all git operations of one batch pull.
+ * <p>
+ * Every fetch of a repository on the same host reuses an open session instead of
+ * connecting and authenticating again. A session is shared by a limited number of
+ * operations at the same time, because each operation runs on its own channel and
+ * SSH servers limit the channels per connection (OpenSSH: 10 by default).
+ * All sessions are disconnected by {@link #close()}.
+ */
+public class SshSessionPool extends SshSessionFactory implements TransportConfigCallback, AutoCloseable {
+
+	private static final ICommonLogger logger = LoggerFactory.getLogger(SshSessionPool.class.getSimpleName(), Activator.PLUGIN_ID, Activator.getDefault());
+
+	/** Highest number of operations that use one session at the same time */
+	private static final int MAX_LEASES_PER_SESSION = 8;
+
+	private final SshSessionFactory delegate;
+
+	/** Open sessions by user, host and port */
+	private final Map<String, List<PooledSession>> sessions = new HashMap<>();
+
+	private int hits;
+	private int misses;
+	private boolean closed;
+
+	/**
+	 * @param delegate factory that opens the sessions
+	 */
+	public SshSessionPool(SshSessionFactory delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Makes SSH transports use this pool.
+	 */
+	@Override
+	public void configure(Transport transport) {
+		if (transport instanceof SshTransport sshTransport) {
+			sshTransport.setSshSessionFactory(this);
+		}
+	}
+
+	@Override
+	public RemoteSession getSession(URIish uri, CredentialsProvider credentialsProvider, FS fs, int tms)
+			throws TransportException {
+		return new Lease(acquire(uri, credentialsProvider, fs, tms), uri, credentialsProvider, fs, tms);
+	}
+
+	/**
+	 * Returns an open session with a free lease, connects a new one if there is none.
+	 */
+	private PooledSession acquire(URIish uri, CredentialsProvider credentialsProvider, FS fs, int tms)
+			throws TransportException {
+		String key = uri.getUser() + "@" + uri.getHost() + ":" + uri.getPort();
+		synchronized (this) {
+			if (!closed) {
+				for (PooledSession session : sessions.getOrDefault(key, List.of())) {
+					if (session.leases < MAX_LEASES_PER_SESSION) {
+						session.leases++;
+						hits++;
+						return session;
+					}
+				}
+			}
+			misses++;
+		}
+
+		// Connect outside of the lock, so that other hosts are not blocked by a slow handshake
+		PooledSession session = new PooledSession(key, delegate.getSession(uri, credentialsProvider, fs, tms));
+		synchronized (this) {
+			if (!closed) {
+				sessions.computeIfAbsent(key, k -> new ArrayList<>()).add(session);
+			}
+			session.leases++;
+		}
+		return session;
+	}
+
+	@Override
+	public void releaseSession(RemoteSession session) {
+		session.disconnect();
+	}
+
+	@Override
+	public String getType() {
+		return delegate.getType();
+	}
+
+	private synchronized void release(PooledSession session) {
+		session.leases--;
+		if (session.leases == 0 && (closed || session.broken)) {
+			session.session.disconnect();
+		}
+	}
+
+	/**
+	 * Removes a session that failed from the pool. It is disconnected once it is no longer used.
+	 */
+	private synchronized void invalidate(PooledSession session) {
+		session.broken = true;
+		List<PooledSession> hostSessions = sessions.get(session.key);
+		if (hostSessions != null) {
+			hostSessions.remove(session);
+		}
+	}
+
+	synchronized int getHits() {
+		return hits;
+	}
+
+	synchronized int getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Disconnects all sessions. Sessions that are still in use are disconnected when they are released.
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+		for (List<PooledSession> hostSessions : sessions.values()) {
+			Iterator<PooledSession> iterator = hostSessions.iterator();
+			while (iterator.hasNext()) {
+				PooledSession session = iterator.next();
+				if (session.leases == 0) {
+					session.session.disconnect();
+				}
+				iterator.remove();
+			}
+		}
+		logger.info("SSH sessions of git batch pull: " + hits + " reused, " + misses + " opened");
+	}
+
+	private static class PooledSession {
+
+		private final String key;
+		private final RemoteSession session;
+		private int leases;
+		private boolean broken;
+
+		PooledSession(String key, RemoteSession session) {
+			this.key = key;
+			this.session = session;
+		}
+	}
+
+	/**
+	 * Session handed out to one transport. Disconnecting it only returns the shared session to the pool.
+	 */
+	private class Lease implements RemoteSession2 {
+
+		private final URIish uri;
+		private final CredentialsProvider credentialsProvider;
+		private final FS fs;
+		private final int tms;
+
+		private PooledSession session;
+		private boolean released;
+
+		Lease(PooledSession session, URIish uri, CredentialsProvider credentialsProvider, FS fs, int tms) {
+			this.session = session;
+			this.uri = uri;
+			this.credentialsProvider = credentialsProvider;
+			this.fs = fs;
+			this.tms = tms;
+		}
+
+		@Override
+		public Process exec(String commandName, int timeout) throws IOException {
+			return exec(commandName, Map.of(), timeout);
+		}
+
+		@Override
+		public Process exec(String commandName, Map<String, String> environment, int timeout) throws IOException {
+			try {
+				return exec(session.session, commandName, environment, timeout);
+			} catch (IOException e) {
+				// The server may have closed an idle session. Retry once on a new one.
+				logger.debug("SSH session to " + session.key + " failed, reconnecting: " + e.getMessage());
+				invalidate(session);
+				release(session);
+				session = acquire(uri, credentialsProvider, fs, tms);
+				return exec(session.session, commandName, environment, timeout);
+			}
+		}
+
+		private Process exec(RemoteSession remoteSession, String commandName, Map<String, String> environment, int timeout)
+				throws IOException {
+			if (remoteSession instanceof RemoteSession2 remoteSession2 && !environment.isEmpty()) {
+				return remoteSession2.exec(commandName, environment, timeout);
+			}
+			return remoteSession.exec(commandName, timeout);
+		}
+
+		@Override
+		public FtpChannel getFtpChannel() {
+			return session.session.getFtpChannel();
+		}
+
+		@Override
+		public synchronized void disconnect() {
+			if (!released) {
+				released = true;
+				release(session);
+			}
+		}
+	}
+}
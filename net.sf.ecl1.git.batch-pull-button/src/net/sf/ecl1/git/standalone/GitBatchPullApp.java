@@ -1,13 +1,21 @@
 package net.sf.ecl1.git.standalone;
 
-import net.sf.ecl1.git.GitBatchPullHandler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import net.sf.ecl1.utilities.standalone.AppUtil;
 
 
 public class GitBatchPullApp {
 
+    /**
+     * @param args optional workspace path and {@value HeadlessGitBatchPull#PULL_WEBAPPS_OPTION}
+     */
     public static void main(String[] args) {
-        AppUtil.setCustomWorkspacePathIfExists(args);
-        new GitBatchPullHandler().execute(null);
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean pullWebapps = arguments.remove(HeadlessGitBatchPull.PULL_WEBAPPS_OPTION);
+        AppUtil.setCustomWorkspacePathIfExists(arguments.toArray(new String[0]));
+        System.exit(new HeadlessGitBatchPull(System.out, pullWebapps).run());
     }
 }
@@ -0,0 +1,259 @@
+package net.sf.ecl1.git.standalone;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jgit.transport.SshSessionFactory;
+
+import com.google.gson.Gson;
+
+import net.sf.ecl1.git.Activator;
+import net.sf.ecl1.git.GitBatchPull;
+import net.sf.ecl1.git.GitBatchPullHandler;
+import net.sf.ecl1.git.GitBatchPullHandler.TomcatState;
+import net.sf.ecl1.git.PullHistory;
+import net.sf.ecl1.git.RepositoryPull;
+import net.sf.ecl1.git.SshSessionPool;
+import net.sf.ecl1.utilities.general.GitUtil;
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
+import net.sf.ecl1.utilities.preferences.PreferenceWrapper;
+
+/**
+ * Git batch pull without the Eclipse jobs framework, for the standalone app.
+ * <p>
+ * Each repository is pulled on its own virtual thread, a semaphore bounds the number of parallel pulls.
+ * The progress is written to stdout as one json object per line, so that the caller (e.g. the VS Code extension)
+ * can show it live. Log messages go to stderr. The last line summarizes the pull, the caller shows it unless the user
+ * disabled the summary of the git batch pull.
+ */
+class HeadlessGitBatchPull {
+
+	private static final ICommonLogger logger = LoggerFactory.getLogger(HeadlessGitBatchPull.class.getSimpleName(), Activator.PLUGIN_ID, Activator.getDefault());
+
+	/** All projects were pulled or were up to date */
+	static final int EXIT_SUCCESS = 0;
+
+	/** At least one project could not be pulled */
+	static final int EXIT_FAILED = 2;
+
+	/** Projects could only not be pulled because of the network, so a retry may succeed */
+	static final int EXIT_NETWORK_FAILURE = 3;
+
+	/** All other projects were pulled, but webapps was not, because it is unknown whether tomcat is running */
+	static final int EXIT_TOMCAT_STATE_UNKNOWN = 4;
+
+	/** Command line option to pull webapps even if tomcat is running or that cannot be determined */
+	static final String PULL_WEBAPPS_OPTION = "--pull-webapps";
+
+	private static final String WEBAPPS = "webapps";
+
+	/**
+	 * Progress line written to stdout. Fields that are null are omitted.
+	 */
+	@SuppressWarnings("unused")
+	private static class ProgressEvent {
+		/** start, skipped, pulling, pulled, up to date, failed or done */
+		final String event;
+		String project;
+		String message;
+		Long durationMillis;
+		Integer projects;
+		Integer repositories;
+		Integer parallelism;
+		Integer pulled;
+		Integer upToDate;
+		Integer failed;
+		Integer exitCode;
+		List<String> failedProjects;
+		/** False if the user disabled the summary of the git batch pull */
+		Boolean displaySummary;
+
+		ProgressEvent(String event) {
+			this.event = event;
+		}
+
+		ProgressEvent(String event, String project) {
+			this.event = event;
+			this.project = project;
+		}
+	}
+
+	private final PrintStream out;
+
+	private final boolean pullWebapps;
+
+	private final Gson gson = new Gson();
+
+	private final PullHistory history = PullHistory.load();
+
+	private final boolean conflictPrecheck = PreferenceWrapper.isGitPullConflictPrecheck();
+
+	private final AtomicInteger pulled = new AtomicInteger();
+	private final AtomicInteger upToDate = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private final AtomicInteger networkFailures = new AtomicInteger();
+	private final List<String> failedProjects = Collections.synchronizedList(new ArrayList<>());
+
+	/**
+	 * @param out receives the progress lines
+	 * @param pullWebapps true to pull webapps even if tomcat is running or that cannot be determined
+	 */
+	HeadlessGitBatchPull(PrintStream out, boolean pullWebapps) {
+		this.out = out;
+		this.pullWebapps = pullWebapps;
+	}
+
+	/**
+	 * Pulls all git versioned projects of the workspace.
+	 *
+	 * @return the exit code of the app
+	 */
+	int run() {
+		long start = System.currentTimeMillis();
+		GitUtil.setupStandaloneSsh();
+
+		List<IProject> projects = GitBatchPullHandler.getProjectsForPull();
+		boolean tomcatStateUnknown = false;
+		// Nobody can be asked, so webapps is not pulled while tomcat may have locked its files
+		if (!pullWebapps && projects.stream().anyMatch(project -> WEBAPPS.equals(project.getName()))) {
+			TomcatState tomcatState = GitBatchPullHandler.getTomcatState();
+			if (tomcatState != TomcatState.NOT_RUNNING) {
+				projects.removeIf(project -> WEBAPPS.equals(project.getName()));
+				tomcatStateUnknown = tomcatState == TomcatState.UNKNOWN;
+				ProgressEvent skipped = new ProgressEvent("skipped", WEBAPPS);
+				skipped.message = (tomcatStateUnknown ? "Could not determine whether Tomcat is running" : "Tomcat is running")
+						+ ", pass " + PULL_WEBAPPS_OPTION + " to pull it anyway";
+				print(skipped);
+			}
+		}
+		projects.sort(history.longestExpectedFirst());
+		Collection<List<IProject>> repositories = GitBatchPull.groupByRepository(projects);
+		int parallelism = PreferenceWrapper.getGitPullMaxParallelism();
+
+		ProgressEvent startEvent = new ProgressEvent("start");
+		startEvent.projects = projects.size();
+		startEvent.repositories = repositories.size();
+		startEvent.parallelism = parallelism;
+		print(startEvent);
+
+		Semaphore permits = new Semaphore(parallelism);
+		try (SshSessionPool sshSessionPool = SshSessionFactory.getInstance() != null
+				? new SshSessionPool(SshSessionFactory.getInstance())
+				: null;
+				ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (List<IProject> repositoryProjects : repositories) {
+				// Taken before the pull is started, so that the pulls start in the order of the list
+				try {
+					permits.acquire();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				executor.execute(() -> {
+					try {
+						pullRepository(repositoryProjects, sshSessionPool);
+					} finally {
+						permits.release();
+					}
+				});
+			}
+			// Closing the executor waits for all pulls
+		}
+		history.save();
+
+		int exitCode = EXIT_SUCCESS;
+		if (failed.get() > 0) {
+			exitCode = failed.get() == networkFailures.get() ? EXIT_NETWORK_FAILURE : EXIT_FAILED;
+		} else if (tomcatStateUnknown) {
+			exitCode = EXIT_TOMCAT_STATE_UNKNOWN;
+		}
+		ProgressEvent done = new ProgressEvent("done");
+		done.durationMillis = System.currentTimeMillis() - start;
+		done.pulled = pulled.get();
+		done.upToDate = upToDate.get();
+		done.failed = failed.get();
+		done.exitCode = exitCode;
+		done.failedProjects = new ArrayList<>(failedProjects);
+		done.displaySummary = PreferenceWrapper.isDisplaySummaryOfGitPull();
+		print(done);
+		logger.info("Git batch pull finished in " + done.durationMillis + " ms: " + done.pulled + " pulled, "
+				+ done.upToDate + " up to date, " + done.failed + " failed");
+		return exitCode;
+	}
+
+	/**
+	 * Pulls the projects of one repository one after another, so that worktrees reuse the fetch of the first project.
+	 */
+	private void pullRepository(List<IProject> repositoryProjects, SshSessionPool sshSessionPool) {
+		Set<String> fetchedRemotes = new HashSet<>();
+		for (IProject project : repositoryProjects) {
+			String name = project.getName();
+			print(new ProgressEvent("pulling", name));
+
+			RepositoryPull pull = new RepositoryPull(name, project.getLocation().toFile(), sshSessionPool);
+			pull.setConflictPrecheck(conflictPrecheck);
+			long start = System.currentTimeMillis();
+			IStatus status;
+			try {
+				status = pull.pull(new NullProgressMonitor(), fetchedRemotes);
+			} catch (RuntimeException e) {
+				logger.error2("Unexpected error while pulling " + name, e);
+				status = new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Failed to pull " + name + ": " + e.getMessage(), e);
+			}
+			long durationMillis = System.currentTimeMillis() - start;
+
+			ProgressEvent result;
+			if (!status.isOK()) {
+				failed.incrementAndGet();
+				failedProjects.add(name);
+				if (RepositoryPull.isNetworkFailure(status)) {
+					networkFailures.incrementAndGet();
+				}
+				result = new ProgressEvent("failed", name);
+				result.message = collectMessages(status);
+			} else if (pull.isUpToDate()) {
+				upToDate.incrementAndGet();
+				result = new ProgressEvent("up to date", name);
+			} else {
+				pulled.incrementAndGet();
+				result = new ProgressEvent("pulled", name);
+			}
+			if (!RepositoryPull.isNetworkFailure(status)) {
+				history.record(name, durationMillis, pull.getTransferredBytes());
+			}
+			result.durationMillis = durationMillis;
+			print(result);
+		}
+	}
+
+	private static String collectMessages(IStatus status) {
+		List<String> messages = new ArrayList<>();
+		messages.add(status.getMessage());
+		for (IStatus child : status.getChildren()) {
+			messages.add(child.getMessage());
+		}
+		return String.join("\n", messages);
+	}
+
+	private void print(ProgressEvent event) {
+		String line = gson.toJson(event);
+		synchronized (out) {
+			out.println(line);
+			out.flush();
+		}
+	}
+}
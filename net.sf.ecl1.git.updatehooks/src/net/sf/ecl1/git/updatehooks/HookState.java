@@ -0,0 +1,101 @@
+package net.sf.ecl1.git.updatehooks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.sf.ecl1.utilities.general.JsonUtil;
+import net.sf.ecl1.utilities.general.WorkspaceSupport;
+import net.sf.ecl1.utilities.logging.ICommonLogger;
+import net.sf.ecl1.utilities.logging.LoggerFactory;
+
+/**
+ * The git hook that was installed by the last successful update, stored in the workspace metadata.
+ * <p>
+ * If the bundled hook, the projects of the workspace and the installed hook files did not change since,
+ * the update is skipped without resolving any project or repository.
+ */
+class HookState {
+
+	private static final ICommonLogger logger = LoggerFactory.getLogger(HookState.class.getSimpleName(), UpdateHooksActivator.PLUGIN_ID, UpdateHooksActivator.getDefault());
+
+	private static final String FILE_NAME = "hook-state.json";
+
+	/** Digest of the installed hook */
+	private String hookDigest;
+
+	/** Names of all projects of the workspace, sorted */
+	private List<String> projects;
+
+	/** Last modification times of the installed hook files by their path */
+	private Map<String, Long> hooks = new TreeMap<>();
+
+	/**
+	 * Loads the state of the current workspace.
+	 *
+	 * @return the stored state, an empty state if there is none or it cannot be read
+	 */
+	static HookState load() {
+		try {
+			HookState state = JsonUtil.fromJson(HookState.class, getFile());
+			if (state != null && state.hooks != null) {
+				return state;
+			}
+		} catch (IOException e) {
+			logger.warn("Could not read git hook state: " + e.getMessage());
+		}
+		return new HookState();
+	}
+
+	/**
+	 * Stores the state in the workspace metadata.
+	 */
+	void save() {
+		try {
+			JsonUtil.toJson(this, getFile());
+		} catch (IOException e) {
+			logger.warn("Could not save git hook state: " + e.getMessage());
+		}
+	}
+
+	private static Path getFile() {
+		return WorkspaceSupport.getPluginStateLocation(UpdateHooksActivator.PLUGIN_ID).resolve(FILE_NAME);
+	}
+
+	/**
+	 * @param hookDigest digest of the bundled hook
+	 * @param projects names of all projects of the workspace, sorted
+	 * @return true if the hook was installed and nothing changed since
+	 */
+	boolean isUpToDate(String hookDigest, List<String> projects) {
+		if (!hookDigest.equals(this.hookDigest) || !projects.equals(this.projects)) {
+			return false;
+		}
+		for (Map.Entry<String, Long> hook : hooks.entrySet()) {
+			// A deleted file has no modification time
+			if (new File(hook.getKey()).lastModified() != hook.getValue()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Remembers a successful update.
+	 *
+	 * @param hookDigest digest of the installed hook
+	 * @param projects names of all projects of the workspace, sorted
+	 * @param hookFiles the installed hook files
+	 */
+	void record(String hookDigest, List<String> projects, List<Path> hookFiles) {
+		this.hookDigest = hookDigest;
+		this.projects = projects;
+		hooks.clear();
+		for (Path hookFile : hookFiles) {
+			hooks.put(hookFile.toString(), hookFile.toFile().lastModified());
+		}
+	}
+}
@@ -5,11 +5,20 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.PosixFilePermissions;
-import java.util.Map.Entry;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IWorkspaceRoot;
@@ -26,6 +35,7 @@ import org.eclipse.jgit.util.FS_POSIX;
 import org.eclipse.jgit.util.FS_Win32;
 import org.eclipse.ui.IStartup;
 
+import net.sf.ecl1.utilities.general.GitUtil;
 import net.sf.ecl1.utilities.hisinone.ExtensionUtil;
 import net.sf.ecl1.utilities.hisinone.WebappsUtil;
 import net.sf.ecl1.utilities.logging.ICommonLogger;
@@ -82,80 +92,136 @@ public class UpdateHooks implements IStartup {
 		}
 		
 		/* -----------------------------------
-		 * Determine the number of projects that we have to process
+		 * Skip the update if nothing changed since the last one
 		 * -----------------------------------
 		 */
-		int totalAmountOfWork = 0;
-		//Webapps
-		IProject webapps = WebappsUtil.findWebappsProject();
-		if (webapps != null) {
-			totalAmountOfWork++;
+		byte[] hook = readCommitMsgHook();
+		if (hook == null) {
+			return Status.OK_STATUS;
 		}
-		//Extensions
+		String hookDigest = digest(hook);
 		IWorkspaceRoot root = WorkspaceFactory.getWorkspace().getRoot();
-		TreeMap<String,String> extensions = new TreeMap<>();
-		ExtensionUtil.getInstance().scanForExtensionProjects(extensions);
-		totalAmountOfWork += extensions.entrySet().size();
-		monitor.beginTask("Updating git hooks", totalAmountOfWork);
-
+		List<String> projectNames = new ArrayList<>();
+		for (IProject project : root.getProjects()) {
+			projectNames.add(project.getName());
+		}
+		Collections.sort(projectNames);
+		HookState state = HookState.load();
+		if (state.isUpToDate(hookDigest, projectNames)) {
+			logger.info("The git hooks of all projects are up to date.");
+			return Status.OK_STATUS;
+		}
 
 		/* -----------------------------------
-		 * Update git hook of webapps project
+		 * Determine the projects that we have to process
 		 * -----------------------------------
 		 */
-		if(webapps != null) {
-			Path webappsGitPath = getGitDirectoryPath(webapps);
-			if(webappsGitPath != null) {
-				monitor.subTask("webapps");
-				Path hooksDirWebapps = webappsGitPath.resolve(HOOKS_DIR_ECLIPSE_PROJECTS);
-				try {
-					copyHookToDestination(getCommitMsgHook(), hooksDirWebapps);
-					
-					logger.info("Successfully updated the git hooks of the webapps project.");
-				} catch (IOException e) {
-					logger.error2("Failed to update the git hooks of the webapps project. Exception: " + e.getMessage(), e);
-				}
-				monitor.worked(1);
-			} else {
-				logger.warn("No git repository found for webapps project.");
-			}
+		List<IProject> projects = new ArrayList<>();
+		//Webapps
+		IProject webapps = WebappsUtil.findWebappsProject();
+		if (webapps != null) {
+			projects.add(webapps);
 		} else {
 			logger.info("No webapps project found in your workspace.");
 		}
+		//Extensions
+		TreeMap<String,String> extensions = new TreeMap<>();
+		ExtensionUtil.getInstance().scanForExtensionProjects(extensions);
+		for (String extensionProjectName : extensions.values()) {
+			projects.add(root.getProject(extensionProjectName));
+		}
+		monitor.beginTask("Updating git hooks", projects.size());
+
 
-		
 		/* ------------------------------------------
-		 * Update git hook of all extension projects
+		 * Update git hooks of webapps and all extension projects in parallel
 		 * ------------------------------------------
 		 */
-		for(Entry<String,String> e : extensions.entrySet()) {
-			monitor.subTask(e.getValue());
-			if(monitor.isCanceled()) {
-				return Status.CANCEL_STATUS;
+		// Worktrees share the hooks of their repository, which are updated once
+		Set<Path> hookFiles = ConcurrentHashMap.newKeySet();
+		AtomicBoolean failed = new AtomicBoolean();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(projects.size(), Runtime.getRuntime().availableProcessors())), runnable -> {
+			Thread thread = new Thread(runnable, "ecl1 git hooks update");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			for (IProject project : projects) {
+				executor.execute(() -> {
+					if (!monitor.isCanceled() && !updateHook(project, project == webapps, hook, hookDigest, hookFiles)) {
+						failed.set(true);
+					}
+					// Progress monitors are not thread safe
+					synchronized (monitor) {
+						monitor.worked(1);
+					}
+				});
 			}
-			
-			IProject extensionProject = root.getProject(e.getValue());
-			
-			Path extensionProjectGitPath = getGitDirectoryPath(extensionProject);
-
-			if(extensionProjectGitPath == null) {
-				logger.warn("No git repository found for extension project: " + extensionProject.getName());
-				continue;
-			}
-			Path hooksDirExtensionProject = extensionProjectGitPath.resolve(HOOKS_DIR_ECLIPSE_PROJECTS);
-			try {
-				copyHookToDestination(getCommitMsgHook(), hooksDirExtensionProject);
-	
-				logger.info("Successfully updated the git hooks of the following extension project: " + extensionProject.getName());
-			} catch (IOException e1) {
-				logger.error2("Failed to update the git hooks of the following extension project: " + extensionProject.getName() + 
-						"\nException: " + e1.getMessage(), e1);
-			}
-			monitor.worked(1);
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+			return Status.CANCEL_STATUS;
+		}
+		if (monitor.isCanceled()) {
+			return Status.CANCEL_STATUS;
+		}
+
+		// Failed projects are retried on the next start
+		if (!failed.get()) {
+			state.record(hookDigest, projectNames, new ArrayList<>(hookFiles));
+			state.save();
 		}
-		
 		return Status.OK_STATUS;
 	}
+
+	/**
+	 * Installs the commit-msg hook in the repository of a project, unless it is installed already.
+	 *
+	 * @param hookFiles the hook files that were installed or checked by this update, the project's hook file is added
+	 * @return false if the hook could not be installed
+	 */
+	private boolean updateHook(IProject project, boolean isWebapps, byte[] hook, String hookDigest, Set<Path> hookFiles) {
+		String description = isWebapps ? "the webapps project" : "the following extension project: " + project.getName();
+		Path gitPath = getGitDirectoryPath(project);
+		if (gitPath == null) {
+			logger.warn("No git repository found for " + description);
+			return true;
+		}
+		Path hookFile = gitPath.resolve(HOOKS_DIR_ECLIPSE_PROJECTS);
+		if (!hookFiles.add(hookFile)) {
+			return true;
+		}
+		try {
+			if (isInstalled(hookFile, hook.length, hookDigest)) {
+				logger.debug("The git hooks of " + description + " are up to date.");
+				return true;
+			}
+			copyHookToDestination(hook, hookFile);
+			logger.info("Successfully updated the git hooks of " + description);
+			return true;
+		} catch (IOException e) {
+			logger.error2("Failed to update the git hooks of " + description + "\nException: " + e.getMessage(), e);
+			return false;
+		}
+	}
+
+	private boolean isInstalled(Path hookFile, int hookSize, String hookDigest) throws IOException {
+		return Files.isRegularFile(hookFile)
+				&& Files.size(hookFile) == hookSize
+				&& (fs.getClass() != FS_POSIX.class || Files.isExecutable(hookFile))
+				&& hookDigest.equals(digest(Files.readAllBytes(hookFile)));
+	}
+
+	private static String digest(byte[] content) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
 	
 	/**
 	 * Returns the path to the repository's Git directory.
@@ -177,29 +243,12 @@ public class UpdateHooks implements IStartup {
 			logger.info("Reading git repository for project "+ project.getName());
 		}
 		File projectRoot = project.getLocation().toFile();
-	    try {
-	    	Repository repository = new FileRepositoryBuilder()
+	    try (Repository repository = new FileRepositoryBuilder()
 	            .setWorkTree(projectRoot)
 	            .readEnvironment()
 	            .findGitDir(projectRoot)
-	            .build();
-
-	    	File gitDir = repository.getDirectory();
-	    	// worktree
-	    	if(gitFile.isFile()) {
-		    	// Compatibility workaround for JGit < 7 (used by Eclipse versions before 2024-12),
-		    	// where Repository#getCommonDirectory() is not yet available.
-		    	File commonDirFile = new File(gitDir, "commondir");
-		    	if (commonDirFile.exists()) {
-		    	    String relative = Files.readString(commonDirFile.toPath()).trim();
-		    	    File commonDir = new File(gitDir, relative).getCanonicalFile();
-		    	    return commonDir.toPath();
-		    	}
-				return null;
-	    	}else {
-	    		return gitDir.toPath();
-	    	}
-
+	            .build()) {
+	    	return GitUtil.getCommonDirectory(repository.getDirectory()).getCanonicalFile().toPath();
 	    } catch (IOException e) {
 	        logger.error("Failed to resolve Git directory for project " + project.getName()+"\n" + e.getMessage());
 	        return null;
@@ -207,22 +256,31 @@ public class UpdateHooks implements IStartup {
 	}
 
 
-    private InputStream getCommitMsgHook() {
+    /**
+     * @return the content of the bundled commit-msg hook, null if it cannot be read
+     */
+    private static byte[] readCommitMsgHook() {
 		InputStream is;
 		if(!net.sf.ecl1.utilities.Activator.isRunningInEclipse()){
 			is = UpdateHooks.class.getResourceAsStream("/commit-msg");
 		}else{
-			is = this.getClass().getClassLoader().getResourceAsStream(HOOKS_DIR_ECL1);
+			is = UpdateHooks.class.getClassLoader().getResourceAsStream(HOOKS_DIR_ECL1);
 		}
 
     	if(is == null) {
     		logger.error2("Failed to locate the git hooks within the ecl1 plugin.");
-    	} 
-    	return is;
+    		return null;
+    	}
+    	try (is) {
+    		return is.readAllBytes();
+    	} catch (IOException e) {
+    		logger.error2("Failed to read the git hooks within the ecl1 plugin.", e);
+    		return null;
+    	}
     }
 	
-    private void copyHookToDestination(InputStream hook, Path destination) throws IOException {
-		Files.copy(hook, destination, StandardCopyOption.REPLACE_EXISTING);
+    private void copyHookToDestination(byte[] hook, Path destination) throws IOException {
+		Files.write(destination, hook);
 		/* 
 		 * On a posix-complaint system, we need to set the executable bits manually.
 		 * 
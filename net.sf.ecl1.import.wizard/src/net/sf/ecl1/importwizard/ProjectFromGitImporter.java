@@ -1,6 +1,10 @@
 package net.sf.ecl1.importwizard;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IProjectDescription;
@@ -9,9 +13,16 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.FS.ExecutionResult;
 
 import net.sf.ecl1.utilities.general.GitUtil;
+import net.sf.ecl1.utilities.general.LfsUtil;
+import net.sf.ecl1.utilities.general.SharedLfsStore;
 import net.sf.ecl1.utilities.logging.ICommonLogger;
 import net.sf.ecl1.utilities.logging.LoggerFactory;
 import net.sf.ecl1.utilities.preferences.PreferenceWrapper;
@@ -71,15 +82,24 @@ public class ProjectFromGitImporter {
             }
             
             try {
-                try {
-                    CloneCommand clone = Git.cloneRepository();
-                    if (branch != null && !"HEAD".equals(branch)) {
-                        clone.setBranch(branch);
+                if (PreferenceWrapper.getGitPartialCloneProjects().contains(extensionToImport)) {
+                    clonePartially(fullRepositoryPath, extensionFolder, branch);
+                } else {
+                    try {
+                        CloneCommand clone = Git.cloneRepository();
+                        if (branch != null && !"HEAD".equals(branch)) {
+                            clone.setBranch(branch);
+                        }
+                        clone.setDirectory(extensionFolder).setURI(fullRepositoryPath).setCloneAllBranches(true);
+                        // Check out after the LFS objects were downloaded in parallel
+                        clone.setNoCheckout(true);
+                        try (Git git = clone.call()) {
+                            prefetchLfsObjects(git.getRepository());
+                            git.reset().setMode(ResetType.HARD).call();
+                        }
+                    } catch (GitAPIException e) {
+                        logger.error2(e.getMessage(), e);
                     }
-                    clone.setDirectory(extensionFolder).setURI(fullRepositoryPath).setCloneAllBranches(true);
-                    clone.call();
-                } catch (GitAPIException e) {
-            		logger.error2(e.getMessage(), e);
                 }
                 
                 if(standalone){
@@ -106,6 +126,64 @@ public class ProjectFromGitImporter {
     	}
     }
     
+    /**
+     * Downloads the LFS objects of the cloned branch, so that the checkout does not download them one after another.
+     * If the prefetch fails, the checkout downloads the objects itself.
+     */
+    private void prefetchLfsObjects(Repository repository) {
+        try {
+            ObjectId head = repository.resolve(Constants.HEAD);
+            if (head == null) {
+                return;
+            }
+            Set<String> missing = LfsUtil.findMissingObjects(repository, null, head);
+            if (!missing.isEmpty() && SharedLfsStore.isEnabled()) {
+                // Objects that other repositories of the workspace already downloaded are linked instead
+                missing = SharedLfsStore.linkObjects(LfsUtil.getObjectsDirectory(repository), missing);
+            }
+            if (missing.isEmpty() || !LfsUtil.isClientAvailable()) {
+                return;
+            }
+            ExecutionResult result = LfsUtil.fetchObjects(repository.getWorkTree(), Constants.DEFAULT_REMOTE_NAME, Constants.HEAD);
+            if (result.getRc() != 0) {
+                logger.warn("LFS prefetch failed, the checkout downloads the objects instead: " + new String(result.getStderr().toByteArray()));
+            }
+        } catch (IOException e) {
+            logger.warn("LFS prefetch failed, the checkout downloads the objects instead: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Clones with the filter configured for partial clones, so that e.g. file contents are only downloaded on checkout.
+     * JGit cannot load missing objects on demand, so the git command line client clones.
+     * It records the filter in the repository configuration, which makes later fetches use the same filter.
+     */
+    private void clonePartially(String repositoryPath, File extensionFolder, String branch) {
+        List<String> args = new ArrayList<>();
+        args.add("clone");
+        args.add("--filter=" + PreferenceWrapper.getGitPartialCloneFilter());
+        if (branch != null && !"HEAD".equals(branch)) {
+            args.add("--branch");
+            args.add(branch);
+        }
+        args.add(repositoryPath);
+        args.add(extensionFolder.getAbsolutePath());
+        logger.info("Cloning " + repositoryPath + " as partial clone");
+        try {
+            ExecutionResult result = GitUtil.runNativeGit(extensionFolder.getParentFile(), args.toArray(new String[0]));
+            if (result.getRc() != 0) {
+                logger.error2("Partial clone of " + repositoryPath + " failed: " + new String(result.getStderr().toByteArray()));
+            }
+        } catch (IOException e) {
+            logger.error2("Could not run git to clone " + repositoryPath + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error2("Partial clone of " + repositoryPath + " was interrupted");
+        }
+    }
+
     private String getFullRepositoryPath(String extensionToImport) {
     	logger.debug("Extension " + extensionToImport + ": baseRepositoryPath = " + baseRepositoryPath);
 
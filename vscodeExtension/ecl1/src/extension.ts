@@ -1,5 +1,5 @@
 import * as vscode from 'vscode';
-import { spawn, spawnSync } from 'child_process';
+import { spawn, spawnSync, ChildProcess } from 'child_process';
 import path from 'path';
 import { readdirSync, existsSync, mkdirSync,
         writeFile, readFile, unlink } from 'fs';
@@ -385,8 +385,9 @@ function getOutputChannelByName(name: string): vscode.OutputChannel {
  * @param extensionPath this extension path
  * @param jarPath path to jar
  * @param name name for displaying the output
+ * @param extraArgs arguments after the workspace path
  */
-function runEcl1Jar(extensionPath: string, jarPath: string, name: string) {
+function runEcl1Jar(extensionPath: string, jarPath: string, name: string, extraArgs: string[] = []) {
     const outputChannel = getOutputChannelByName('ecl1: ' + name);
     outputChannel.show();
 
@@ -403,7 +404,7 @@ function runEcl1Jar(extensionPath: string, jarPath: string, name: string) {
 
     const fullJarPath = path.join(extensionPath, jarPath);
     const innerWsPath = getInnerWorkspaceFolder();
-    const args = ['-jar', fullJarPath, innerWsPath];
+    const args = ['-jar', fullJarPath, innerWsPath, ...extraArgs];
 
     outputChannel.appendLine(`Using Java: ${javaPath}`);
 
@@ -411,6 +412,10 @@ function runEcl1Jar(extensionPath: string, jarPath: string, name: string) {
         stdio: 'pipe'
     });
 
+    if (name === 'Git Batch Pull') {
+        showGitBatchPullProgress(javaProcess, () => runEcl1Jar(extensionPath, jarPath, name, ['--pull-webapps']));
+    }
+
     javaProcess.stdout.on('data', (data) => {
         outputChannel.appendLine(stripAnsiColor(data));
     });
@@ -424,6 +429,65 @@ function runEcl1Jar(extensionPath: string, jarPath: string, name: string) {
     });
 }
 
+/**
+ * Shows the progress lines the git batch pull writes as json to stdout in a notification.
+ * @param javaProcess running git batch pull
+ * @param pullWebapps runs the git batch pull again, pulling webapps even if tomcat may be running
+ */
+function showGitBatchPullProgress(javaProcess: ChildProcess, pullWebapps: () => void) {
+    vscode.window.withProgress({
+        location: vscode.ProgressLocation.Notification,
+        title: 'ecl1: Git Batch Pull'
+    }, (progress) => new Promise<void>((resolve) => {
+        let incompleteLine = '';
+        let projects = 0;
+        javaProcess.stdout?.on('data', (data) => {
+            const lines = (incompleteLine + data.toString()).split(/\r?\n/);
+            incompleteLine = lines.pop() ?? '';
+            for (const line of lines) {
+                if (!line.startsWith('{')) {
+                    continue;
+                }
+                const event = JSON.parse(line);
+                switch (event.event) {
+                    case 'start':
+                        projects = event.projects;
+                        break;
+                    case 'pulling':
+                        progress.report({ message: event.project });
+                        break;
+                    case 'pulled':
+                    case 'up to date':
+                    case 'failed':
+                        progress.report({ increment: 100 / Math.max(1, projects), message: `${event.project}: ${event.event}` });
+                        break;
+                    case 'skipped':
+                        vscode.window.showWarningMessage(`ecl1: Git Batch Pull skipped ${event.project}. ${event.message}`, 'Pull anyway')
+                            .then(selection => {
+                                if (selection === 'Pull anyway') {
+                                    pullWebapps();
+                                }
+                            });
+                        break;
+                    case 'done': {
+                        if (event.displaySummary === false) {
+                            break;
+                        }
+                        const summary = `ecl1: Git Batch Pull finished. ${event.pulled} pulled, ${event.upToDate} up to date, ${event.failed} failed.`;
+                        if (event.failed > 0) {
+                            vscode.window.showWarningMessage(`${summary} Failed: ${event.failedProjects.join(', ')}`);
+                        } else {
+                            vscode.window.showInformationMessage(summary);
+                        }
+                        break;
+                    }
+                }
+            }
+        });
+        javaProcess.on('close', () => resolve());
+    }));
+}
+
 function stripAnsiColor(input: string) {
     return input.toString().replace(/\x1B\[[0-9;]*m/g, '');
 }